@@ -0,0 +1,82 @@
+package ine5417.benchmarks;
+
+import ine5417.algorithms.Algorithm;
+import ine5417.algorithms.AlgorithmFactory;
+import ine5417.algorithms.implementations.Caesar;
+import ine5417.algorithms.implementations.RepeatingXOR;
+import ine5417.algorithms.implementations.SingleKeyXOR;
+import ine5417.algorithms.implementations.Vigenere;
+import ine5417.records.BruteForce;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures cipher, decipher and bruteforce of every registered algorithm across payload sizes
+ * and languages.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks compile exec:exec}; results are written to
+ * {@code target/jmh-result.json} together with the GC profiler allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class AlgorithmBenchmark {
+
+    /**
+     * A representative key for each algorithm
+     */
+    private static final Map<String, String> KEYS = Map.of(
+            Caesar.IDENTIFIER, "c",
+            SingleKeyXOR.IDENTIFIER, "K",
+            RepeatingXOR.IDENTIFIER, "ICE",
+            Vigenere.IDENTIFIER, "LEMON"
+    );
+
+    @Param({Caesar.IDENTIFIER, SingleKeyXOR.IDENTIFIER, RepeatingXOR.IDENTIFIER, Vigenere.IDENTIFIER})
+    public String algorithm;
+
+    /**
+     * Payload size in bytes, from 64 B to 64 MB
+     */
+    @Param({"64", "4096", "262144", "16777216", "67108864"})
+    public int size;
+
+    @Param({"en", "pt"})
+    public String language;
+
+    private Algorithm instance;
+    private byte[] key;
+    private byte[] plaintext;
+    private byte[] ciphertext;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        instance = AlgorithmFactory.getAlgorithm(algorithm)
+                .orElseThrow(() -> new IllegalStateException("Unknown algorithm " + algorithm));
+        key = KEYS.get(algorithm).getBytes(StandardCharsets.UTF_8);
+        plaintext = Corpus.generate(language, size, Corpus.DEFAULT_SEED);
+        ciphertext = instance.cipher(plaintext, key);
+    }
+
+    @Benchmark
+    public byte[] cipher() {
+        return instance.cipher(plaintext, key);
+    }
+
+    @Benchmark
+    public byte[] decipher() {
+        return instance.decipher(ciphertext, key);
+    }
+
+    @Benchmark
+    public List<BruteForce> bruteforce() {
+        return instance.bruteforce(ciphertext);
+    }
+}
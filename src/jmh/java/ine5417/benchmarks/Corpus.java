@@ -0,0 +1,50 @@
+package ine5417.benchmarks;
+
+import ine5417.commom.Frequency;
+import ine5417.commom.ScoringProfile;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic, seeded text corpora used as benchmark payloads.
+ * <p>
+ * Text is sampled from the letter and space frequencies of a language profile, so the same
+ * (language, size, seed) always yields the same bytes and the attacks see realistic statistics.
+ */
+public final class Corpus {
+    public static final long DEFAULT_SEED = 5417L;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private Corpus() {}
+
+    /**
+     * Generates {@code size} bytes of lowercase text distributed like {@code language}.
+     */
+    public static byte[] generate(String language, int size, long seed) {
+        ScoringProfile profile = Frequency.getProfile(language);
+
+        // Cumulative distribution over 'a'..'z' followed by ' '
+        double[] cumulative = new double[ScoringProfile.ALPHABET_SIZE + 1];
+        double total = 0;
+        for (int i = 0; i < ScoringProfile.ALPHABET_SIZE; i++) {
+            total += profile.letterFrequency(i);
+            cumulative[i] = total;
+        }
+        total += Math.max(0f, profile.score((byte) ' '));
+        cumulative[ScoringProfile.ALPHABET_SIZE] = total;
+
+        SplittableRandom random = new SplittableRandom(seed);
+        byte[] corpus = new byte[size];
+        for (int i = 0; i < size; i++) {
+            double sample = random.nextDouble(total);
+            int symbol = 0;
+            while (symbol < ScoringProfile.ALPHABET_SIZE && sample >= cumulative[symbol]) {
+                symbol++;
+            }
+            corpus[i] = symbol == ScoringProfile.ALPHABET_SIZE ? (byte) ' ' : (byte) ('a' + symbol);
+        }
+        return corpus;
+    }
+}
@@ -0,0 +1,69 @@
+package ine5417.benchmarks;
+
+import ine5417.algorithms.kernels.ByteKernel;
+import ine5417.algorithms.kernels.ByteKernels;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of the scalar and vector cipher kernels on the same text.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks compile exec:exec -Djmh.args="KernelBenchmark"}; the
+ * {@code vector} runs need the {@code --add-modules jdk.incubator.vector} the profile passes on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class KernelBenchmark {
+
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    /**
+     * Payload size in bytes, from 64 B to 16 MB
+     */
+    @Param({"64", "4096", "262144", "16777216"})
+    public int size;
+
+    private ByteKernel instance;
+    private byte[] plaintext;
+    private byte[] output;
+    private ByteKernel.ExpandedKey repeatingKey;
+    private ByteKernel.ExpandedKey shifts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        instance = ByteKernels.named(kernel);
+        plaintext = Corpus.generate("en", size, Corpus.DEFAULT_SEED);
+        output = new byte[size];
+        repeatingKey = instance.expand("ICE".getBytes(StandardCharsets.UTF_8));
+        byte[] lemon = "LEMON".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < lemon.length; i++) {
+            lemon[i] -= 'A';
+        }
+        shifts = instance.expand(lemon);
+    }
+
+    @Benchmark
+    public byte[] singleXor() {
+        instance.xor(plaintext, 0, output, 0, size, (byte) 'K');
+        return output;
+    }
+
+    @Benchmark
+    public byte[] repeatingXor() {
+        instance.xor(plaintext, 0, output, 0, size, repeatingKey, 0);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] vigenere() {
+        instance.shiftLetters(plaintext, 0, output, 0, size, shifts, 0);
+        return output;
+    }
+}
@@ -2,23 +2,44 @@ package ine5417;
 
 import ine5417.commom.Constants;
 import ine5417.commom.Endpoints;
+import ine5417.controllers.BatchController;
+import ine5417.controllers.BruteForceJobs;
+import ine5417.controllers.BruteForceStreams;
 import ine5417.controllers.CipherController;
+import ine5417.controllers.IdentificationController;
+import ine5417.records.BruteForceJob;
+import ine5417.records.BruteForceParameters;
 import ine5417.records.BruteForceResult;
 import ine5417.records.Ciphered;
 import ine5417.records.Deciphered;
+import ine5417.records.Identification;
+import ine5417.records.StreamParameters;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.info.Info;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.apache.coyote.BadRequestException;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.web.servlet.support.SpringBootServletInitializer;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.Base64;
 import java.util.List;
 
 @SpringBootApplication
@@ -34,9 +55,19 @@ import java.util.List;
 )
 public class Application extends SpringBootServletInitializer {
     private final CipherController cipherController;
+    private final BruteForceJobs bruteForceJobs;
+    private final BatchController batchController;
+    private final BruteForceStreams bruteForceStreams;
+    private final IdentificationController identificationController;
 
-    public Application(CipherController cipherController) {
+    public Application(CipherController cipherController, BruteForceJobs bruteForceJobs,
+                       BatchController batchController, BruteForceStreams bruteForceStreams,
+                       IdentificationController identificationController) {
         this.cipherController = cipherController;
+        this.bruteForceJobs = bruteForceJobs;
+        this.batchController = batchController;
+        this.bruteForceStreams = bruteForceStreams;
+        this.identificationController = identificationController;
     }
 
     public static void main(String[] args) {
@@ -64,10 +95,207 @@ public class Application extends SpringBootServletInitializer {
 
     @Operation(description = "BruteForceResult")
     @ApiResponse(responseCode = "200", description = "Successfully bruteforced the content")
-    @GetMapping(value = Endpoints.BRUTEFORCE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @GetMapping(value = Endpoints.BRUTEFORCE,
+            produces = {MediaType.APPLICATION_JSON_VALUE, Endpoints.BRUTEFORCE_RESULT_BINARY})
     public BruteForceResult bruteforce(@RequestParam("toDecrypt") String toDecrypt,
-                                       @RequestParam("cipher") String cipher) throws BadRequestException {
-        return cipherController.bruteforce(toDecrypt, cipher);
+                                       @RequestParam("cipher") String cipher,
+                                       @ParameterObject BruteForceParameters parameters) throws BadRequestException {
+        return cipherController.bruteforce(toDecrypt, cipher, parameters);
+    }
+
+    @Operation(description = "Identify the cipher of a ciphertext, attacking in parallel every cipher its statistics do not rule out")
+    @ApiResponse(responseCode = "200", description = "Successfully ranked the plausible ciphers")
+    @GetMapping(value = Endpoints.IDENTIFY, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Identification identify(@RequestParam("toDecrypt") String toDecrypt,
+                                   @ParameterObject BruteForceParameters parameters) throws BadRequestException {
+        return identificationController.identify(toDecrypt, parameters);
+    }
+
+    @Operation(description = "Identify the cipher of a binary payload")
+    @ApiResponse(responseCode = "200", description = "Successfully ranked the plausible ciphers")
+    @PostMapping(value = Endpoints.IDENTIFY,
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Identification identifyBinary(@RequestBody byte[] toDecrypt,
+                                         @ParameterObject BruteForceParameters parameters) throws BadRequestException {
+        return identificationController.identify(toDecrypt, parameters);
+    }
+
+    @Operation(description = "Cipher a binary payload, returning the raw ciphertext")
+    @ApiResponse(responseCode = "200", description = "Successfully ciphered the content")
+    @PostMapping(value = Endpoints.CIPHER_BINARY,
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void cipherBinary(@PathVariable("cipher") String cipher,
+                             @RequestHeader(Endpoints.KEY_HEADER) String key,
+                             HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        cipherController.encryptBody(request.getInputStream(), request.getContentLengthLong(),
+                response.getOutputStream(), cipher, key);
+    }
+
+    @Operation(description = "Cipher a binary payload, returning the Base64 encoded ciphertext as JSON")
+    @ApiResponse(responseCode = "200", description = "Successfully ciphered the content")
+    @PostMapping(value = Endpoints.CIPHER_BINARY,
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Ciphered cipherBinaryAsJson(@RequestBody byte[] plaintext,
+                                       @PathVariable("cipher") String cipher,
+                                       @RequestHeader(Endpoints.KEY_HEADER) String key) throws BadRequestException {
+        return cipherController.encrypt(plaintext, cipher, key);
+    }
+
+    @Operation(description = "Decipher a binary payload, returning the raw plaintext")
+    @ApiResponse(responseCode = "200", description = "Successfully deciphered the content")
+    @PostMapping(value = Endpoints.DECIPHER_BINARY,
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void decipherBinary(@PathVariable("cipher") String cipher,
+                               @RequestHeader(Endpoints.KEY_HEADER) String key,
+                               HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        cipherController.decryptBody(request.getInputStream(), request.getContentLengthLong(),
+                response.getOutputStream(), cipher, key);
+    }
+
+    @Operation(description = "Decipher a binary payload, returning the plaintext as JSON")
+    @ApiResponse(responseCode = "200", description = "Successfully deciphered the content")
+    @PostMapping(value = Endpoints.DECIPHER_BINARY,
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Deciphered decipherBinaryAsJson(@RequestBody byte[] toDecrypt,
+                                           @PathVariable("cipher") String cipher,
+                                           @RequestHeader(Endpoints.KEY_HEADER) String key) throws BadRequestException {
+        return cipherController.decrypt(toDecrypt, cipher, key);
+    }
+
+    @Operation(description = "Bruteforce a binary payload")
+    @ApiResponse(responseCode = "200", description = "Successfully bruteforced the content")
+    @PostMapping(value = Endpoints.BRUTEFORCE_BINARY,
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = {MediaType.APPLICATION_JSON_VALUE, Endpoints.BRUTEFORCE_RESULT_BINARY})
+    public BruteForceResult bruteforceBinary(@RequestBody byte[] toDecrypt,
+                                             @PathVariable("cipher") String cipher,
+                                             @ParameterObject BruteForceParameters parameters) throws BadRequestException {
+        return cipherController.bruteforce(toDecrypt, cipher, parameters);
+    }
+
+    @Operation(description = "Bruteforce, streaming each improved candidate as a server-sent event as soon as it is found")
+    @ApiResponse(responseCode = "200", description = "Successfully started the stream")
+    @GetMapping(value = Endpoints.BRUTEFORCE_STREAM, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter bruteforceStream(@RequestParam("toDecrypt") String toDecrypt,
+                                       @RequestParam("cipher") String cipher,
+                                       @ParameterObject BruteForceParameters parameters,
+                                       @ParameterObject StreamParameters stream) throws BadRequestException {
+        byte[] ciphertext = Base64.getDecoder().decode(toDecrypt.replace(' ', '+'));
+        return bruteForceStreams.stream(ciphertext, cipher, parameters, stream);
+    }
+
+    @Operation(description = "Bruteforce a binary payload, streaming each improved candidate as a server-sent event as soon as it is found")
+    @ApiResponse(responseCode = "200", description = "Successfully started the stream")
+    @PostMapping(value = Endpoints.BRUTEFORCE_BINARY_STREAM,
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter bruteforceBinaryStream(@RequestBody byte[] toDecrypt,
+                                             @PathVariable("cipher") String cipher,
+                                             @ParameterObject BruteForceParameters parameters,
+                                             @ParameterObject StreamParameters stream) throws BadRequestException {
+        return bruteForceStreams.stream(toDecrypt, cipher, parameters, stream);
+    }
+
+    @Operation(description = "Queue a bruteforce of a binary payload, returning the job to poll")
+    @ApiResponse(responseCode = "202", description = "Successfully queued the job")
+    @ApiResponse(responseCode = "503", description = "Too many queued jobs")
+    @PostMapping(value = Endpoints.BRUTEFORCE_JOBS,
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BruteForceJob submitBruteforceJob(@RequestBody byte[] toDecrypt,
+                                             @PathVariable("cipher") String cipher,
+                                             @ParameterObject BruteForceParameters parameters,
+                                             @RequestParam(value = "deadlineSeconds", required = false) Integer deadlineSeconds)
+            throws BadRequestException {
+        return bruteForceJobs.submit(toDecrypt, cipher, parameters, deadlineSeconds);
+    }
+
+    @Operation(description = "Status of a bruteforce job, with the candidates found so far")
+    @ApiResponse(responseCode = "200", description = "Successfully retrieved the job")
+    @ApiResponse(responseCode = "404", description = "Unknown or expired job")
+    @GetMapping(value = Endpoints.JOB, produces = MediaType.APPLICATION_JSON_VALUE)
+    public BruteForceJob getJob(@PathVariable("id") String id) {
+        return bruteForceJobs.get(id);
+    }
+
+    @Operation(description = "Cancel a bruteforce job, or forget it if it already finished")
+    @ApiResponse(responseCode = "200", description = "Successfully cancelled the job")
+    @ApiResponse(responseCode = "404", description = "Unknown or expired job")
+    @DeleteMapping(value = Endpoints.JOB, produces = MediaType.APPLICATION_JSON_VALUE)
+    public BruteForceJob cancelJob(@PathVariable("id") String id) {
+        return bruteForceJobs.cancel(id);
+    }
+
+    @Operation(description = "Cipher a stream of any length in constant memory")
+    @ApiResponse(responseCode = "200", description = "Successfully ciphered the stream")
+    @PostMapping(value = Endpoints.STREAM_CIPHER,
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void cipherStream(@RequestParam("cipher") String cipher,
+                             @RequestParam("key") String key,
+                             HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        cipherController.encryptStream(request.getInputStream(), response.getOutputStream(), cipher, key);
+    }
+
+    @Operation(description = "Decipher a stream of any length in constant memory")
+    @ApiResponse(responseCode = "200", description = "Successfully deciphered the stream")
+    @PostMapping(value = Endpoints.STREAM_DECIPHER,
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void decipherStream(@RequestParam("cipher") String cipher,
+                               @RequestParam("key") String key,
+                               HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        cipherController.decryptStream(request.getInputStream(), response.getOutputStream(), cipher, key);
+    }
+
+    @Operation(description = "Cipher a batch of messages, one JSON object per line, streaming one result per line in order")
+    @ApiResponse(responseCode = "200", description = "Processed the batch; failed messages carry an error")
+    @PostMapping(value = Endpoints.BATCH_CIPHER, consumes = Endpoints.NDJSON, produces = Endpoints.NDJSON)
+    public void cipherBatch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(Endpoints.NDJSON);
+        batchController.processNdjson(request.getInputStream(), response.getOutputStream(), true);
+    }
+
+    @Operation(description = "Cipher a batch of length-prefixed binary messages, streaming one result frame per message in order")
+    @ApiResponse(responseCode = "200", description = "Processed the batch; failed messages carry an error")
+    @PostMapping(value = Endpoints.BATCH_CIPHER,
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void cipherBinaryBatch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        batchController.processBinary(request.getInputStream(), response.getOutputStream(), true);
+    }
+
+    @Operation(description = "Decipher a batch of messages, one JSON object per line, streaming one result per line in order")
+    @ApiResponse(responseCode = "200", description = "Processed the batch; failed messages carry an error")
+    @PostMapping(value = Endpoints.BATCH_DECIPHER, consumes = Endpoints.NDJSON, produces = Endpoints.NDJSON)
+    public void decipherBatch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(Endpoints.NDJSON);
+        batchController.processNdjson(request.getInputStream(), response.getOutputStream(), false);
+    }
+
+    @Operation(description = "Decipher a batch of length-prefixed binary messages, streaming one result frame per message in order")
+    @ApiResponse(responseCode = "200", description = "Processed the batch; failed messages carry an error")
+    @PostMapping(value = Endpoints.BATCH_DECIPHER,
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void decipherBinaryBatch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        batchController.processBinary(request.getInputStream(), response.getOutputStream(), false);
     }
 
     @Operation(description = "ListCiphers")
@@ -76,4 +304,11 @@ public class Application extends SpringBootServletInitializer {
     public List<String> bruteforce() {
         return cipherController.listCiphers();
     }
+
+    @Operation(description = "ListLanguages")
+    @ApiResponse(responseCode = "200", description = "Successfully listed the languages scored by bruteforce")
+    @GetMapping(value = Endpoints.LIST_LANGUAGES, produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<String> listLanguages() {
+        return cipherController.listLanguages();
+    }
 }
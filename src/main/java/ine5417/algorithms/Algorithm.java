@@ -1,8 +1,14 @@
 package ine5417.algorithms;
 
 import ine5417.records.BruteForce;
+import ine5417.records.CiphertextStatistics;
 import org.apache.commons.lang3.tuple.Triple;
 
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 
 /*
@@ -30,11 +36,125 @@ public interface Algorithm {
      */
     byte[] decipher(byte[] toDecrypt, byte[] key);
 
+    /**
+     * Creates a transformation that encrypts a stream chunk by chunk using a specified key.
+     *
+     * @param key The key to use for encryption.
+     * @return A new {@link StreamTransform}, positioned at the start of the stream.
+     */
+    StreamTransform cipherStream(byte[] key);
+
+    /**
+     * Creates a transformation that decrypts a stream chunk by chunk using a specified key.
+     *
+     * @param key The key required for decryption.
+     * @return A new {@link StreamTransform}, positioned at the start of the stream.
+     */
+    StreamTransform decipherStream(byte[] key);
+
+    /**
+     * Encrypts the remaining bytes of a buffer into another, at its position, without allocating
+     * an output array. The plaintext is consumed and the position of the ciphertext advances by
+     * the number of bytes encrypted.
+     *
+     * @param plaintext  The data to be encrypted.
+     * @param ciphertext The buffer receiving the encrypted data; may be the plaintext buffer itself.
+     * @param key        The key to use for encryption.
+     * @return The number of bytes encrypted.
+     * @throws BufferOverflowException If the ciphertext buffer has fewer bytes remaining than the plaintext.
+     */
+    default int cipher(ByteBuffer plaintext, ByteBuffer ciphertext, byte[] key) {
+        return StreamTransform.transform(plaintext, ciphertext, cipherStream(key));
+    }
+
+    /**
+     * Decrypts the remaining bytes of a buffer into another, at its position, without allocating
+     * an output array. The encrypted data is consumed and the position of the plaintext advances by
+     * the number of bytes decrypted.
+     *
+     * @param toDecrypt The encrypted data.
+     * @param plaintext The buffer receiving the decrypted data; may be the encrypted buffer itself.
+     * @param key       The key required for decryption.
+     * @return The number of bytes decrypted.
+     * @throws BufferOverflowException If the plaintext buffer has fewer bytes remaining than the encrypted data.
+     */
+    default int decipher(ByteBuffer toDecrypt, ByteBuffer plaintext, byte[] key) {
+        return StreamTransform.transform(toDecrypt, plaintext, decipherStream(key));
+    }
+
+    /**
+     * Encrypts the remaining bytes of a buffer in place, leaving its position and limit unchanged.
+     *
+     * @param buffer The data to be encrypted, replaced by the encrypted data.
+     * @param key    The key to use for encryption.
+     */
+    default void cipher(ByteBuffer buffer, byte[] key) {
+        cipherStream(key).update(buffer, buffer.position(), buffer.remaining());
+    }
+
+    /**
+     * Decrypts the remaining bytes of a buffer in place, leaving its position and limit unchanged.
+     *
+     * @param buffer The encrypted data, replaced by the decrypted data.
+     * @param key    The key required for decryption.
+     */
+    default void decipher(ByteBuffer buffer, byte[] key) {
+        decipherStream(key).update(buffer, buffer.position(), buffer.remaining());
+    }
+
+    /**
+     * Encrypts everything read from a channel in fixed-size chunks, in constant memory.
+     *
+     * @param plaintext  The channel providing the data to be encrypted.
+     * @param ciphertext The channel receiving the encrypted data.
+     * @param key        The key to use for encryption.
+     * @return The number of bytes encrypted.
+     * @throws IOException If reading or writing fails.
+     */
+    default long cipher(ReadableByteChannel plaintext, WritableByteChannel ciphertext, byte[] key) throws IOException {
+        return StreamTransform.transfer(plaintext, ciphertext, cipherStream(key));
+    }
+
+    /**
+     * Decrypts everything read from a channel in fixed-size chunks, in constant memory.
+     *
+     * @param toDecrypt The channel providing the encrypted data.
+     * @param plaintext The channel receiving the decrypted data.
+     * @param key       The key required for decryption.
+     * @return The number of bytes decrypted.
+     * @throws IOException If reading or writing fails.
+     */
+    default long decipher(ReadableByteChannel toDecrypt, WritableByteChannel plaintext, byte[] key) throws IOException {
+        return StreamTransform.transfer(toDecrypt, plaintext, decipherStream(key));
+    }
+
     /**
      * Attempts to decrypt a ciphertext without a key by iterating through possibilities.
      *
      * @param ciphertext The encrypted data to be attacked.
      * @return A list of {@link BruteForce} objects, where each represents a potential solution
      */
-    List<BruteForce> bruteforce(byte[] ciphertext);
-}
\ No newline at end of file
+    default List<BruteForce> bruteforce(byte[] ciphertext) {
+        return bruteforce(ciphertext, BruteForceOptions.defaults());
+    }
+
+    /**
+     * Attempts to decrypt a ciphertext without a key by iterating through possibilities.
+     *
+     * @param ciphertext The encrypted data to be attacked.
+     * @param options    The tuning of the attack (e.g., its parallelism).
+     * @return A list of {@link BruteForce} objects, where each represents a potential solution
+     */
+    List<BruteForce> bruteforce(byte[] ciphertext, BruteForceOptions options);
+
+    /**
+     * Tells, from cheap statistics alone, whether this algorithm may have produced a ciphertext,
+     * so that identifying an unknown cipher does not attack it with every algorithm.
+     *
+     * @param statistics The statistics of the ciphertext.
+     * @return False only if this algorithm cannot reasonably have produced the ciphertext from text.
+     */
+    default boolean isPlausible(CiphertextStatistics statistics) {
+        return true;
+    }
+}
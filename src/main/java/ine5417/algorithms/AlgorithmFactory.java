@@ -1,28 +1,31 @@
 package ine5417.algorithms;
 
-import org.reflections.Reflections;
-
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
- * This factory automatically discovers all classes that implement the Algorithm
- * interface by reading their public static IDENTIFIER field.
+ * This factory loads every implementation of the Algorithm interface listed in the
+ * {@code META-INF/services/ine5417.algorithms.Algorithm} index and registers it under its
+ * public static IDENTIFIER field.
+ * <p>
+ * Implementations are stateless, so a single shared instance of each one is created at class
+ * initialization and handed out to every request. A new algorithm must be added to the index.
  */
 public final class AlgorithmFactory {
 
-    private static final Map<String, Class<? extends Algorithm>> ALGORITHMS = initializeAlgorithms();
+    private static final Map<String, Algorithm> ALGORITHMS = initializeAlgorithms();
+    private static final List<String> IDENTIFIERS = List.copyOf(ALGORITHMS.keySet());
 
     private AlgorithmFactory() {}
 
-    private static Map<String, Class<? extends Algorithm>> initializeAlgorithms() {
-        Reflections reflections = new Reflections("ine5417.algorithms.implementations");
-        Set<Class<? extends Algorithm>> algorithmClasses = reflections.getSubTypesOf(Algorithm.class);
-
-        return algorithmClasses.stream()
-                .collect(Collectors.toMap(
-                        AlgorithmFactory::getIdentifierFromClass, clazz -> clazz
-                ));
+    private static Map<String, Algorithm> initializeAlgorithms() {
+        Map<String, Algorithm> algorithms = new LinkedHashMap<>();
+        for (Algorithm algorithm : ServiceLoader.load(Algorithm.class, AlgorithmFactory.class.getClassLoader())) {
+            String identifier = getIdentifierFromClass(algorithm.getClass());
+            if (algorithms.putIfAbsent(identifier, algorithm) != null) {
+                throw new IllegalStateException("Duplicate algorithm identifier: " + identifier);
+            }
+        }
+        return Collections.unmodifiableMap(algorithms);
     }
 
 
@@ -36,21 +39,13 @@ public final class AlgorithmFactory {
     }
 
     /**
-     * Retrieves a new instance of an algorithm based on its identifier.
+     * Retrieves the shared, thread-safe instance of an algorithm based on its identifier.
      */
     public static Optional<Algorithm> getAlgorithm(String identifier) {
-        Class<? extends Algorithm> algorithmClass = ALGORITHMS.get(identifier.toLowerCase());
-        if (algorithmClass != null) {
-            try {
-                return Optional.of(algorithmClass.getDeclaredConstructor().newInstance());
-            } catch (Exception e) {
-                return Optional.empty();
-            }
-        }
-        return Optional.empty();
+        return Optional.ofNullable(ALGORITHMS.get(identifier.toLowerCase()));
     }
 
     public static List<String> getAlgorithmIdentifiers() {
-        return new ArrayList<>(ALGORITHMS.keySet());
+        return IDENTIFIERS;
     }
-}
\ No newline at end of file
+}
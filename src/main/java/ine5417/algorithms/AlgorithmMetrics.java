@@ -0,0 +1,123 @@
+package ine5417.algorithms;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer instrumentation of the algorithms, tagged by algorithm identifier.
+ * <p>
+ * Meters are registered once in {@link Metrics#globalRegistry}, to which Spring Boot binds the
+ * application registry, and kept in this object, so recording is a map lookup and a lock-free
+ * update. Outside the application (e.g., in benchmarks) the global registry is empty and every
+ * recording is a no-op. Published meters:
+ * <ul>
+ *     <li>{@code algorithm.operation} (timer) and {@code algorithm.bytes} (summary), tagged by
+ *     {@code operation}: cipher, decipher or bruteforce.</li>
+ *     <li>{@code bruteforce.phase} (timer), tagged by {@code phase}.</li>
+ *     <li>{@code bruteforce.keys.evaluated}, {@code bruteforce.key.lengths.tested} and
+ *     {@code bruteforce.languages.scored} (summaries, one sample per attack).</li>
+ * </ul>
+ */
+public final class AlgorithmMetrics {
+    public static final String CIPHER = "cipher";
+    public static final String DECIPHER = "decipher";
+    public static final String BRUTEFORCE = "bruteforce";
+
+    public static final String PHASE_KEY_LENGTH_DETECTION = "key_length_detection";
+    public static final String PHASE_COLUMN_SOLVING = "column_solving";
+    public static final String PHASE_FINAL_SCORING = "final_scoring";
+    public static final String PHASE_MATERIALIZATION = "materialization";
+
+    private static final Map<String, AlgorithmMetrics> INSTANCES = new ConcurrentHashMap<>();
+
+    private final String algorithm;
+    private final MeterRegistry registry;
+    private final Map<String, Timer> operations = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> bytes = new ConcurrentHashMap<>();
+    private final Map<String, Timer> phases = new ConcurrentHashMap<>();
+    private final DistributionSummary keysEvaluated;
+    private final DistributionSummary keyLengthsTested;
+    private final DistributionSummary languagesScored;
+
+    private AlgorithmMetrics(String algorithm, MeterRegistry registry) {
+        this.algorithm = algorithm;
+        this.registry = registry;
+        this.keysEvaluated = DistributionSummary.builder("bruteforce.keys.evaluated")
+                .description("Candidate keys scored by a brute-force attack")
+                .tag("algorithm", algorithm)
+                .register(registry);
+        this.keyLengthsTested = DistributionSummary.builder("bruteforce.key.lengths.tested")
+                .description("Key lengths tested by a brute-force attack")
+                .tag("algorithm", algorithm)
+                .register(registry);
+        this.languagesScored = DistributionSummary.builder("bruteforce.languages.scored")
+                .description("Languages scored by a brute-force attack")
+                .tag("algorithm", algorithm)
+                .register(registry);
+    }
+
+    /**
+     * @param algorithm The identifier of an algorithm.
+     * @return The instrumentation of the algorithm.
+     */
+    public static AlgorithmMetrics of(String algorithm) {
+        return INSTANCES.computeIfAbsent(algorithm, id -> new AlgorithmMetrics(id, Metrics.globalRegistry));
+    }
+
+    /**
+     * Records a cipher, decipher or brute-force operation.
+     *
+     * @param operation The operation (e.g., {@link #CIPHER}).
+     * @param nanos     The duration of the operation.
+     * @param length    The number of bytes processed.
+     */
+    public void recordOperation(String operation, long nanos, long length) {
+        operations.computeIfAbsent(operation, op -> Timer.builder("algorithm.operation")
+                        .description("Duration of cipher, decipher and brute-force operations")
+                        .tag("algorithm", algorithm)
+                        .tag("operation", op)
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+        bytes.computeIfAbsent(operation, op -> DistributionSummary.builder("algorithm.bytes")
+                        .description("Bytes processed by cipher, decipher and brute-force operations")
+                        .baseUnit("bytes")
+                        .tag("algorithm", algorithm)
+                        .tag("operation", op)
+                        .register(registry))
+                .record(length);
+    }
+
+    /**
+     * Records the duration of a phase of a brute-force attack.
+     *
+     * @param phase The phase (e.g., {@link #PHASE_COLUMN_SOLVING}).
+     * @param nanos The duration of the phase.
+     */
+    public void recordPhase(String phase, long nanos) {
+        phases.computeIfAbsent(phase, p -> Timer.builder("bruteforce.phase")
+                        .description("Duration of the phases of brute-force attacks")
+                        .tag("algorithm", algorithm)
+                        .tag("phase", p)
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the amount of work of a brute-force attack.
+     *
+     * @param keys       The number of candidate keys (or key bytes) scored.
+     * @param keyLengths The number of key lengths tested.
+     * @param languages  The number of languages scored.
+     */
+    public void recordBruteforce(long keys, int keyLengths, int languages) {
+        keysEvaluated.record(keys);
+        keyLengthsTested.record(keyLengths);
+        languagesScored.record(languages);
+    }
+}
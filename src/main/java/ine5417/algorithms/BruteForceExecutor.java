@@ -0,0 +1,128 @@
+package ine5417.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the independent pieces of a brute-force attack (e.g., one language, key length or column)
+ * in parallel on a shared fork-join pool.
+ * <p>
+ * Parallelism is capped twice: the shared pool never uses more than {@link #getMaxParallelism()}
+ * threads across all requests, and a single attack never occupies more than the parallelism it
+ * asks for, so one large request cannot take every core away from concurrent traffic.
+ * Results are always returned in task order, so the merged outcome does not depend on scheduling.
+ */
+public final class BruteForceExecutor {
+    private static volatile ForkJoinPool pool;
+    private static volatile int maxParallelism;
+    private static volatile int defaultParallelism;
+
+    static {
+        int processors = Runtime.getRuntime().availableProcessors();
+        configure(processors, Math.max(1, processors / 2));
+    }
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private BruteForceExecutor() {}
+
+    /**
+     * Replaces the shared pool. Attacks already running finish on the previous pool.
+     *
+     * @param maxParallelism     The maximum number of threads used by all attacks together.
+     * @param defaultParallelism The parallelism of an attack that does not ask for one.
+     */
+    public static synchronized void configure(int maxParallelism, int defaultParallelism) {
+        if (maxParallelism < 1 || defaultParallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        ForkJoinPool previous = pool;
+        pool = new ForkJoinPool(maxParallelism);
+        BruteForceExecutor.maxParallelism = maxParallelism;
+        BruteForceExecutor.defaultParallelism = Math.min(defaultParallelism, maxParallelism);
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    public static int getMaxParallelism() {
+        return maxParallelism;
+    }
+
+    public static int getDefaultParallelism() {
+        return defaultParallelism;
+    }
+
+    /**
+     * Runs every task with at most {@code parallelism} of them executing at the same time.
+     *
+     * @param tasks       The independent tasks to run.
+     * @param parallelism The maximum number of tasks of this call running at once. Capped by
+     *                    {@link #getMaxParallelism()}; 1 runs every task on the calling thread.
+     * @return The result of each task, in the order of {@code tasks}.
+     */
+    public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks, int parallelism) {
+        int workers = Math.min(Math.min(parallelism, maxParallelism), tasks.size());
+        if (workers <= 1) {
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Callable<T> task : tasks) {
+                results.add(call(task));
+            }
+            return results;
+        }
+
+        // Each worker pulls the next pending task, so at most 'workers' tasks run at once
+        Object[] results = new Object[tasks.size()];
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < tasks.size(); i = next.getAndIncrement()) {
+                try {
+                    results[i] = call(tasks.get(i));
+                } catch (RuntimeException e) {
+                    // The attack fails (or was cancelled) as a whole: the other workers stop pulling tasks
+                    next.set(tasks.size());
+                    throw e;
+                }
+            }
+        };
+
+        ForkJoinPool current = pool;
+        List<Future<?>> futures = new ArrayList<>(workers);
+        try {
+            for (int i = 0; i < workers; i++) {
+                futures.add(current.submit(worker));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Brute-force attack interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+
+        @SuppressWarnings("unchecked")
+        List<T> ordered = (List<T>) Arrays.asList(results);
+        return ordered;
+    }
+
+    private static <T> T call(Callable<T> task) {
+        try {
+            return task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ine5417.algorithms;
+
+import ine5417.records.BruteForce;
+
+/**
+ * Receives the candidates of a brute-force attack as soon as they are deciphered, before the
+ * attack is over. May be called concurrently from the threads of the attack.
+ */
+@FunctionalInterface
+public interface BruteForceListener {
+    /**
+     * A listener that ignores every candidate
+     */
+    BruteForceListener NONE = candidate -> {};
+
+    /**
+     * @param candidate A deciphered candidate; it may or may not make it to the final result.
+     */
+    void onCandidate(BruteForce candidate);
+}
@@ -0,0 +1,135 @@
+package ine5417.algorithms;
+
+import ine5417.commom.Frequency;
+import ine5417.commom.ScoringProfile;
+import ine5417.records.BruteForce;
+import lombok.With;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Per-request tuning of a brute-force attack.
+ *
+ * @param parallelism         The maximum number of pieces of the attack running at once (see {@link BruteForceExecutor}).
+ * @param maxKeyLength        The longest key length tested by repeating-key attacks, or 0 for the algorithm default.
+ * @param keyLengthCandidates The number of most likely key lengths fully attacked, or 0 for the algorithm default.
+ * @param languages           The codes of the languages scored, or null for every registered language.
+ * @param topK                The number of candidates returned per language, or 0 for the algorithm default.
+ * @param previewLength       The number of characters of each returned plaintext, or 0 for the whole plaintext.
+ * @param cancellation        Stops the attack early when cancelled or expired.
+ * @param listener            Receives the candidates while the attack runs.
+ */
+@With
+public record BruteForceOptions(int parallelism, int maxKeyLength, int keyLengthCandidates, List<String> languages,
+                                int topK, int previewLength, CancellationToken cancellation,
+                                BruteForceListener listener) {
+    /**
+     * The most bytes a UTF-8 character takes, so a preview of n characters needs at most 4n bytes
+     */
+    private static final int MAX_BYTES_PER_CHARACTER = 4;
+
+    public BruteForceOptions {
+        if (languages != null) {
+            languages = List.copyOf(languages);
+        }
+        if (cancellation == null) {
+            cancellation = CancellationToken.NONE;
+        }
+        if (listener == null) {
+            listener = BruteForceListener.NONE;
+        }
+    }
+
+    /**
+     * @return The options used when the caller does not specify any.
+     */
+    public static BruteForceOptions defaults() {
+        return new BruteForceOptions(BruteForceExecutor.getDefaultParallelism(), 0, 0, null, 0, 0,
+                CancellationToken.NONE, BruteForceListener.NONE);
+    }
+
+    /**
+     * @return The requested maximum key length, or {@code algorithmDefault} if none was requested.
+     */
+    public int maxKeyLengthOr(int algorithmDefault) {
+        return maxKeyLength > 0 ? maxKeyLength : algorithmDefault;
+    }
+
+    /**
+     * @return The requested number of key length candidates, or {@code algorithmDefault} if none was requested.
+     */
+    public int keyLengthCandidatesOr(int algorithmDefault) {
+        return keyLengthCandidates > 0 ? keyLengthCandidates : algorithmDefault;
+    }
+
+    /**
+     * @return The requested number of candidates per language, or {@code algorithmDefault} if none was requested.
+     */
+    public int topKOr(int algorithmDefault) {
+        return topK > 0 ? topK : algorithmDefault;
+    }
+
+    /**
+     * @param plaintextLength The length of a whole plaintext, in bytes.
+     * @return The number of its leading bytes needed to decode the requested preview.
+     */
+    public int previewBytes(int plaintextLength) {
+        if (previewLength <= 0) {
+            return plaintextLength;
+        }
+        return (int) Math.min(plaintextLength, (long) previewLength * MAX_BYTES_PER_CHARACTER);
+    }
+
+    /**
+     * Decodes the returned part of a plaintext: the whole plaintext, or its first
+     * {@code previewLength} characters. Only the {@link #previewBytes(int) bytes needed} are read,
+     * so the plaintext may have been deciphered only that far.
+     *
+     * @param plaintext The plaintext, or its first {@link #previewBytes(int)} bytes.
+     */
+    public String decode(byte[] plaintext) {
+        String text = new String(plaintext, 0, previewBytes(plaintext.length), StandardCharsets.UTF_8);
+        if (previewLength <= 0 || text.length() <= previewLength) {
+            return text;
+        }
+        int end = Character.isHighSurrogate(text.charAt(previewLength - 1)) ? previewLength - 1 : previewLength;
+        return text.substring(0, end);
+    }
+
+    /**
+     * @return Whether a listener waits for the candidates, so they are worth materializing while the attack runs.
+     */
+    public boolean isListened() {
+        return listener != BruteForceListener.NONE;
+    }
+
+    /**
+     * @return The codes of the languages scored: the requested ones, or every registered language.
+     */
+    public List<String> languagesOrAll() {
+        return languages != null ? languages : Frequency.getAvailableLanguages();
+    }
+
+    /**
+     * Loads, on first use, the profiles of the languages scored.
+     *
+     * @return The profiles of the {@link #languagesOrAll() languages scored}, in the same order.
+     * @throws IllegalArgumentException If a requested language is not registered.
+     */
+    public List<ScoringProfile> profiles() {
+        return Frequency.getProfiles(languagesOrAll());
+    }
+
+    /**
+     * Stops the attack if it was cancelled, and reports a candidate to the listener.
+     *
+     * @return The candidate.
+     * @throws java.util.concurrent.CancellationException If the attack was cancelled or expired.
+     */
+    public BruteForce emit(BruteForce candidate) {
+        cancellation.throwIfCancelled();
+        listener.onCandidate(candidate);
+        return candidate;
+    }
+}
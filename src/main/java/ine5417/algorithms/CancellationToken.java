@@ -0,0 +1,75 @@
+package ine5417.algorithms;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cooperative cancellation of a brute-force attack. Algorithms call {@link #throwIfCancelled()}
+ * between the pieces of an attack (e.g., before each key length or column), so a cancelled or
+ * expired attack stops at the next check instead of running to completion.
+ */
+public final class CancellationToken {
+    /**
+     * A token that is never cancelled
+     */
+    public static final CancellationToken NONE = new CancellationToken(0);
+
+    /** Value of {@link System#nanoTime()} at which the attack expires, or 0 if it never does */
+    private final long deadline;
+    private volatile boolean cancelled;
+
+    private CancellationToken(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * @return A token that is only cancelled by {@link #cancel()}.
+     */
+    public static CancellationToken create() {
+        return new CancellationToken(0);
+    }
+
+    /**
+     * @param timeout How long the attack may run, from now.
+     * @return A token that is cancelled by {@link #cancel()} or once {@code timeout} elapses.
+     */
+    public static CancellationToken withTimeout(Duration timeout) {
+        // 0 is reserved for "no deadline"
+        return new CancellationToken((System.nanoTime() + timeout.toNanos()) | 1);
+    }
+
+    /**
+     * Requests the attack to stop. Has no effect on {@link #NONE}.
+     */
+    public void cancel() {
+        if (this != NONE) {
+            cancelled = true;
+        }
+    }
+
+    /**
+     * @return Whether {@link #cancel()} was called.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return Whether the deadline of the token has passed.
+     */
+    public boolean isExpired() {
+        return deadline != 0 && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * @throws CancellationException If the token was cancelled or its deadline has passed.
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Brute-force attack cancelled");
+        }
+        if (isExpired()) {
+            throw new CancellationException("Brute-force attack deadline exceeded");
+        }
+    }
+}
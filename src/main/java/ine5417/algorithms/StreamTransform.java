@@ -0,0 +1,111 @@
+package ine5417.algorithms;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+/**
+ * A stateful cipher transformation applied to consecutive chunks of a stream.
+ * <p>
+ * Each call transforms the next chunk of the stream in place. Implementations carry whatever
+ * state must survive chunk boundaries (e.g., the position in a repeating key), so a message
+ * transformed in several chunks yields exactly the same bytes as the whole-array operation.
+ * Instances are not thread-safe and must be used for a single stream.
+ */
+@FunctionalInterface
+public interface StreamTransform {
+    /**
+     * Default size of the chunks read from a channel
+     */
+    int CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Transforms, in place, the next {@code length} bytes of the stream.
+     *
+     * @param buffer The buffer holding the chunk.
+     * @param offset The position of the chunk in the buffer.
+     * @param length The number of bytes of the chunk.
+     */
+    void update(byte[] buffer, int offset, int length);
+
+    /**
+     * Transforms, in place, the next {@code length} bytes of the stream, held in {@code buffer} at
+     * the absolute position {@code offset}; the position and limit of the buffer are not changed.
+     * <p>
+     * Heap buffers go through {@link #update(byte[], int, int)} on their backing array. Other
+     * buffers are copied to a temporary array and back, unless the transformation overrides this
+     * method to work on them directly.
+     *
+     * @param buffer The buffer holding the chunk.
+     * @param offset The position of the chunk in the buffer.
+     * @param length The number of bytes of the chunk.
+     */
+    default void update(ByteBuffer buffer, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, buffer.limit());
+        if (buffer.hasArray()) {
+            update(buffer.array(), buffer.arrayOffset() + offset, length);
+            return;
+        }
+        byte[] chunk = new byte[length];
+        buffer.get(offset, chunk);
+        update(chunk, 0, length);
+        buffer.put(offset, chunk);
+    }
+
+    /**
+     * Reads {@code in} until the end of the stream, in chunks of {@link #CHUNK_SIZE} bytes,
+     * transforms every chunk and writes it to {@code out}. Memory use is constant regardless of
+     * the length of the stream.
+     *
+     * @param in        The source channel.
+     * @param out       The destination channel.
+     * @param transform The transformation to apply.
+     * @return The number of bytes transferred.
+     * @throws IOException If reading or writing fails.
+     */
+    static long transfer(ReadableByteChannel in, WritableByteChannel out, StreamTransform transform) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        long total = 0;
+        while (in.read(buffer) >= 0) {
+            buffer.flip();
+            transform.update(buffer.array(), buffer.arrayOffset(), buffer.limit());
+            total += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+        return total;
+    }
+
+    /**
+     * Transforms the remaining bytes of {@code source} into {@code target}, at its position. The
+     * source is consumed and the position of the target advances by the same number of bytes; if
+     * both are the same buffer, its remaining bytes are transformed in place and consumed.
+     *
+     * @param source    The bytes to transform.
+     * @param target    The buffer receiving the transformed bytes.
+     * @param transform The transformation to apply, at the start of the bytes.
+     * @return The number of bytes transformed.
+     * @throws BufferOverflowException If the target has fewer bytes remaining than the source.
+     */
+    static int transform(ByteBuffer source, ByteBuffer target, StreamTransform transform) {
+        int length = source.remaining();
+        int at = target.position();
+        if (source != target) {
+            if (target.remaining() < length) {
+                throw new BufferOverflowException();
+            }
+            target.put(at, source, source.position(), length);
+        }
+        transform.update(target, at, length);
+        source.position(source.limit());
+        if (source != target) {
+            target.position(at + length);
+        }
+        return length;
+    }
+}
@@ -0,0 +1,101 @@
+package ine5417.algorithms;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The {@code k} best keys of each language offered during an attack.
+ * <p>
+ * Only (language, key, score) is kept, in one bounded min-heap per language: an offer better than
+ * the worst kept key replaces it in {@code O(log k)}, so memory stays at {@code k} keys per
+ * language however many keys are tried. The plaintexts are deciphered and decoded afterwards, for
+ * the final winners only. On equal scores the key offered first wins.
+ * <p>
+ * Not thread-safe: parallel attacks offer their scores from the thread that joins them.
+ */
+public final class TopCandidates {
+    /**
+     * A kept key.
+     *
+     * @param language The index of the language in the attack.
+     * @param key      The key.
+     * @param score    The score of the plaintext of the key in the language.
+     */
+    public record Candidate(int language, byte[] key, float score) {}
+
+    private record Entry(Candidate candidate, long order) {}
+
+    /** Worst first: lowest score, then latest offer */
+    private static final Comparator<Entry> WORST_FIRST = (a, b) -> {
+        int byScore = Float.compare(a.candidate().score(), b.candidate().score());
+        return byScore != 0 ? byScore : Long.compare(b.order(), a.order());
+    };
+
+    private final int k;
+    private final List<PriorityQueue<Entry>> heaps;
+    private long offers;
+
+    /**
+     * @param languages The number of languages of the attack.
+     * @param k         The number of keys kept per language.
+     * @param keysTried The number of keys the attack offers per language, so that the heaps are
+     *                  only sized for the keys they can actually hold.
+     */
+    public TopCandidates(int languages, int k, int keysTried) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        this.k = k;
+        this.heaps = new ArrayList<>(languages);
+        int capacity = Math.max(Math.min(k, keysTried), 0) + 1;
+        for (int i = 0; i < languages; i++) {
+            heaps.add(new PriorityQueue<>(capacity, WORST_FIRST));
+        }
+    }
+
+    /**
+     * @return Whether a key of this score would currently be kept for the language.
+     */
+    public boolean accepts(int language, float score) {
+        PriorityQueue<Entry> heap = heaps.get(language);
+        return heap.size() < k || score > heap.peek().candidate().score();
+    }
+
+    /**
+     * Offers a key, which is kept if it is among the {@code k} best of its language so far.
+     *
+     * @return Whether the key was kept.
+     */
+    public boolean offer(int language, byte[] key, float score) {
+        if (!accepts(language, score)) {
+            return false;
+        }
+        PriorityQueue<Entry> heap = heaps.get(language);
+        heap.add(new Entry(new Candidate(language, key, score), offers++));
+        if (heap.size() > k) {
+            heap.poll();
+        }
+        return true;
+    }
+
+    /**
+     * @return The kept keys of a language, best first.
+     */
+    public List<Candidate> best(int language) {
+        List<Entry> entries = new ArrayList<>(heaps.get(language));
+        entries.sort(WORST_FIRST.reversed());
+        return entries.stream().map(Entry::candidate).toList();
+    }
+
+    /**
+     * @return The kept keys of every language, best first.
+     */
+    public List<Candidate> best() {
+        List<Entry> entries = new ArrayList<>();
+        heaps.forEach(entries::addAll);
+        entries.sort(WORST_FIRST.reversed());
+        return entries.stream().map(Entry::candidate).toList();
+    }
+}
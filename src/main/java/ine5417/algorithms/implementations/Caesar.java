@@ -1,87 +1,178 @@
 package ine5417.algorithms.implementations;
 
 import ine5417.algorithms.Algorithm;
-import ine5417.commom.Frequency;
+import ine5417.algorithms.AlgorithmMetrics;
+import ine5417.algorithms.BruteForceOptions;
+import ine5417.algorithms.StreamTransform;
+import ine5417.algorithms.TopCandidates;
+import ine5417.commom.ByteHistogram;
+import ine5417.commom.MultiLanguageScorer;
+import ine5417.commom.ScoringProfile;
 import ine5417.records.BruteForce;
+import ine5417.records.CiphertextStatistics;
 
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 
 @SuppressWarnings("unused")
 public class Caesar implements Algorithm {
     public static final String IDENTIFIER = "caesar";
+    private static final int ALPHABET_SIZE = 26;
+    private static final AlgorithmMetrics METRICS = AlgorithmMetrics.of(IDENTIFIER);
+    private static final int DEFAULT_TOP_K = 3;
 
     public static String getIdentifier() { return Caesar.IDENTIFIER; }
 
+    /**
+     * SHIFT_TABLES[shift][b] is the byte b rotated by shift positions if it is an ASCII letter,
+     * or b itself otherwise. Indexed by the unsigned value of the byte.
+     */
+    private static final byte[][] SHIFT_TABLES = buildShiftTables();
+
+    private static byte[][] buildShiftTables() {
+        byte[][] tables = new byte[ALPHABET_SIZE][256];
+        for (int shift = 0; shift < ALPHABET_SIZE; shift++) {
+            for (int b = 0; b < 256; b++) {
+                int shifted = b;
+                if (b >= 'a' && b <= 'z') {
+                    shifted = 'a' + (b - 'a' + shift) % ALPHABET_SIZE;
+                } else if (b >= 'A' && b <= 'Z') {
+                    shifted = 'A' + (b - 'A' + shift) % ALPHABET_SIZE;
+                }
+                tables[shift][b] = (byte) shifted;
+            }
+        }
+        return tables;
+    }
+
     @Override
     public byte[] cipher(byte[] toCipher, byte[] key) {
-        byte shiftKey = (byte) (key[0] % 26);
-        return execute(toCipher, shiftKey);
+        return execute(toCipher, shiftOf(key));
     }
 
     @Override
     public byte[] decipher(byte[] encrypted, byte[] key) {
-        byte shiftKey = (byte) (key[0] % 26);
-        byte inverseKey = (byte) ((26 - shiftKey) % 26);
-        return execute(encrypted, inverseKey);
+        return execute(encrypted, inverseOf(shiftOf(key)));
     }
 
-    private int shiftCharacter(int c, byte shiftAmount) {
-        if (c >= 'a' && c <= 'z') {
-            return 'a' + (c - 'a' + shiftAmount) % 26;
-        }
-        if (c >= 'A' && c <= 'Z') {
-            return 'A' + (c - 'A' + shiftAmount) % 26;
-        }
-        return c;
+    @Override
+    public StreamTransform cipherStream(byte[] key) {
+        return stream(shiftOf(key));
     }
 
-    private byte[] execute(byte[] data, byte shiftAmount) {
-        String resultString = new String(data, StandardCharsets.UTF_8)
-                .chars()
-                .map(c -> shiftCharacter(c, shiftAmount))
-                .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
-                .toString();
+    @Override
+    public StreamTransform decipherStream(byte[] key) {
+        return stream(inverseOf(shiftOf(key)));
+    }
+
+    private static StreamTransform stream(int shiftAmount) {
+        return new StreamTransform() {
+            @Override
+            public void update(byte[] buffer, int offset, int length) {
+                shift(buffer, offset, length, buffer, offset, shiftAmount);
+            }
+
+            @Override
+            public void update(ByteBuffer buffer, int offset, int length) {
+                if (buffer.hasArray()) {
+                    StreamTransform.super.update(buffer, offset, length);
+                    return;
+                }
+                Objects.checkFromIndexSize(offset, length, buffer.limit());
+                final byte[] table = SHIFT_TABLES[shiftAmount];
+                for (int i = offset, end = offset + length; i < end; i++) {
+                    buffer.put(i, table[buffer.get(i) & 0xFF]);
+                }
+            }
+        };
+    }
+
+    private static int shiftOf(byte[] key) {
+        return Math.floorMod(key[0], ALPHABET_SIZE);
+    }
 
-        return resultString.getBytes(StandardCharsets.UTF_8);
+    private static int inverseOf(int shift) {
+        return (ALPHABET_SIZE - shift) % ALPHABET_SIZE;
+    }
+
+    private byte[] execute(byte[] data, int shiftAmount) {
+        byte[] output = new byte[data.length];
+        shift(data, 0, data.length, output, 0, shiftAmount);
+        return output;
+    }
+
+    /**
+     * Rotates every ASCII letter of {@code input[offset, offset + length)} by {@code shiftAmount}
+     * positions and writes the result to {@code output} starting at {@code outputOffset}. Any other
+     * byte (including the bytes of multibyte UTF-8 sequences) is copied unchanged, so the input and
+     * output buffers may be the same array.
+     *
+     * @param shiftAmount The rotation, between 0 and 25.
+     */
+    public static void shift(byte[] input, int offset, int length, byte[] output, int outputOffset, int shiftAmount) {
+        final byte[] table = SHIFT_TABLES[shiftAmount];
+        for (int i = 0; i < length; i++) {
+            output[outputOffset + i] = table[input[offset + i] & 0xFF];
+        }
+    }
+
+    /**
+     * Only letters are shifted, so text stays printable, and through a single alphabet, so the
+     * letters keep the index of coincidence of the language.
+     */
+    @Override
+    public boolean isPlausible(CiphertextStatistics statistics) {
+        return statistics.isPrintableWithLetters() && statistics.isMonoalphabetic();
     }
 
     @Override
-    public List<BruteForce> bruteforce(byte[] ciphertext) {
+    public List<BruteForce> bruteforce(byte[] ciphertext, BruteForceOptions options) {
         List<BruteForce> finalResults = new ArrayList<>();
-        for (String lang : Frequency.availableLanguages) {
-            Map<Byte, Float> langTable = Frequency.tables.get(lang);
-            List<BruteForce> resultsForLang = new ArrayList<>();
-
-            for (int keyGuess = 0; keyGuess < 26; keyGuess++) {
-                byte currentKey = (byte) keyGuess;
-                byte inverseKey = (byte) ((26 - currentKey) % 26);
-                byte[] potentialPlaintext = execute(ciphertext, inverseKey);
-                float score = calculateScore(potentialPlaintext, langTable);
-
-                resultsForLang.add(new BruteForce(
-                        lang,
-                        new String(potentialPlaintext, StandardCharsets.UTF_8),
-                        String.valueOf(currentKey),
-                        score
-                ));
-            }
+        long scoringStart = System.nanoTime();
+        int[] histogram = ByteHistogram.of(ciphertext);
 
-            resultsForLang.sort((a, b) -> b.score().compareTo(a.score()));
-            int limit = Math.min(3, resultsForLang.size());
-            finalResults.addAll(resultsForLang.subList(0, limit));
+        List<ScoringProfile> profiles = new ArrayList<>();
+        for (ScoringProfile profile : options.profiles()) {
+            profiles.add(profile.withDefault(0.0f));
         }
-        finalResults.sort((a, b) -> b.score().compareTo(a.score()));
-        return finalResults;
-    }
+        MultiLanguageScorer scorer = MultiLanguageScorer.of(profiles);
+        options.cancellation().throwIfCancelled();
+
+        // Score every shift for every language from the histogram, keeping only the best keys
+        TopCandidates top = new TopCandidates(scorer.size(), options.topKOr(DEFAULT_TOP_K), ALPHABET_SIZE);
+        float[] shiftScores = new float[scorer.size()];
+        for (int keyGuess = 0; keyGuess < ALPHABET_SIZE; keyGuess++) {
+            scorer.scoreLetterRotation(histogram, inverseOf(keyGuess), shiftScores);
+            for (int lang = 0; lang < scorer.size(); lang++) {
+                top.offer(lang, new byte[]{(byte) keyGuess}, shiftScores[lang]);
+            }
+        }
+        long materializationStart = System.nanoTime();
 
-    private float calculateScore(byte[] plaintext, Map<Byte, Float> frequencyTable) {
-        float score = 0;
-        for (byte b : plaintext) {
-            score += frequencyTable.getOrDefault(b, 0.0f);
+        // Only the best candidates are deciphered, once even if several languages pick them, and
+        // only as far as the preview goes
+        int length = options.previewBytes(ciphertext.length);
+        String[] plaintexts = new String[ALPHABET_SIZE];
+        for (TopCandidates.Candidate candidate : top.best()) {
+            options.cancellation().throwIfCancelled();
+            int keyGuess = candidate.key()[0];
+            if (plaintexts[keyGuess] == null) {
+                byte[] plaintext = new byte[length];
+                shift(ciphertext, 0, length, plaintext, 0, inverseOf(keyGuess));
+                plaintexts[keyGuess] = options.decode(plaintext);
+            }
+            finalResults.add(options.emit(new BruteForce(
+                    scorer.language(candidate.language()),
+                    plaintexts[keyGuess],
+                    String.valueOf(keyGuess),
+                    candidate.score()
+            )));
         }
-        return score;
+        METRICS.recordPhase(AlgorithmMetrics.PHASE_FINAL_SCORING, materializationStart - scoringStart);
+        METRICS.recordPhase(AlgorithmMetrics.PHASE_MATERIALIZATION, System.nanoTime() - materializationStart);
+        METRICS.recordBruteforce((long) ALPHABET_SIZE * scorer.size(), 1, scorer.size());
+        return finalResults;
     }
-}
\ No newline at end of file
+}
@@ -1,17 +1,44 @@
 package ine5417.algorithms.implementations;
 
-import ine5417.commom.Frequency;
+import ine5417.algorithms.AlgorithmMetrics;
+import ine5417.algorithms.BruteForceExecutor;
+import ine5417.algorithms.BruteForceOptions;
+import ine5417.algorithms.CancellationToken;
+import ine5417.algorithms.StreamTransform;
+import ine5417.algorithms.TopCandidates;
+import ine5417.algorithms.kernels.ByteKernel;
+import ine5417.algorithms.kernels.ByteKernels;
+import ine5417.commom.ByteHistogram;
+import ine5417.commom.MultiLanguageScorer;
+import ine5417.commom.ScoringProfile;
 import ine5417.records.BruteForce;
-import org.apache.commons.lang3.tuple.Pair;
+import ine5417.records.CiphertextStatistics;
 import org.springframework.stereotype.Component;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.Callable;
 
 @Component
 public class RepeatingXOR extends SingleKeyXOR {
     public static final String IDENTIFIER = "repeatingxor";
+    private static final AlgorithmMetrics METRICS = AlgorithmMetrics.of(IDENTIFIER);
+    private static final int DEFAULT_MAX_KEY_LENGTH = 30;
+    private static final int DEFAULT_KEY_LENGTH_CANDIDATES = 6;
+    private static final int DEFAULT_TOP_K = 1;
+    private static final int MIN_BLOCKS = 5;
+    /**
+     * Standard deviations of the distances of all key lengths within which a divisor of a selected
+     * key length is as close as it, and replaces it. Every shift of text has a distance of a few
+     * bits per byte, so only a margin relative to the spread of the distances tells apart a
+     * divisor that is just as close from one that merely happens to be low.
+     */
+    private static final double EQUIVALENT_DEVIATIONS = 0.75;
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
 
     public static String getIdentifier() {
         return RepeatingXOR.IDENTIFIER;
@@ -23,107 +50,292 @@ public class RepeatingXOR extends SingleKeyXOR {
     @Override
     public byte[] decipher(byte[] encrypted, byte[] key) { return execute(encrypted, key); }
 
+    @Override
+    public StreamTransform cipherStream(byte[] key) {
+        if (key == null || key.length == 0) return (buffer, offset, length) -> {};
+        ByteKernel kernel = ByteKernels.get();
+        ByteKernel.ExpandedKey streamKey = kernel.expand(key);
+        return new StreamTransform() {
+            // Position in the key of the next byte of the stream
+            private int keyIndex = 0;
+
+            @Override
+            public void update(byte[] buffer, int offset, int length) {
+                keyIndex = kernel.xor(buffer, offset, buffer, offset, length, streamKey, keyIndex);
+            }
+
+            @Override
+            public void update(ByteBuffer buffer, int offset, int length) {
+                keyIndex = kernel.xor(buffer, offset, length, streamKey, keyIndex);
+            }
+        };
+    }
 
     @Override
-    public List<BruteForce> bruteforce(byte[] ciphertext) {
-        List<BruteForce> results = new ArrayList<>();
-        for (String lang : Frequency.availableLanguages) {
-            Map<Byte, Float> langTable = new HashMap<>(Frequency.tables.get(lang)); // Use a copy
+    public StreamTransform decipherStream(byte[] key) {
+        return cipherStream(key);
+    }
+
+
+    /**
+     * XOR-ing text with non-zero bytes turns its spaces into something else, so it no longer reads
+     * like text. The key may have any length, including 1.
+     */
+    @Override
+    public boolean isPlausible(CiphertextStatistics statistics) {
+        return !statistics.looksLikeText();
+    }
+
+    @Override
+    public List<BruteForce> bruteforce(byte[] ciphertext, BruteForceOptions options) {
+        List<ScoringProfile> langTables = new ArrayList<>();
+        for (ScoringProfile profile : options.profiles()) {
+            ScoringProfile langTable = profile.withDefault(UNKNOWN_BYTE_SCORE);
             if (ciphertext.length < 30) {
-                langTable.put((byte) ' ', 7f);
+                langTable = langTable.with((byte) ' ', 7f);
             }
+            langTables.add(langTable);
+        }
+        MultiLanguageScorer scorer = MultiLanguageScorer.of(langTables);
+        int languages = scorer.size();
 
-            BruteForce bestResultForLang = new BruteForce("", "", "", -1f);
-            List<Integer> keyLengths = findKeyLengths(ciphertext, 8);
+        long phaseStart = System.nanoTime();
+        List<Integer> keyLengths = findKeyLengths(
+                ciphertext,
+                options.maxKeyLengthOr(DEFAULT_MAX_KEY_LENGTH),
+                options.keyLengthCandidatesOr(DEFAULT_KEY_LENGTH_CANDIDATES),
+                options.parallelism(),
+                options.cancellation()
+        );
 
-            for (int keyLength : keyLengths) {
-                if (keyLength == 0) continue;
+        phaseStart = recordPhase(AlgorithmMetrics.PHASE_KEY_LENGTH_DETECTION, phaseStart);
 
-                byte[] key = new byte[keyLength];
-                List<byte[]> transposedBlocks = transposeCiphertext(ciphertext, keyLength);
+        // Solve every (key length, column) independently; one pass over the column histogram
+        // solves it for every language
+        List<Callable<byte[]>> columnTasks = new ArrayList<>();
+        for (int keyLength : keyLengths) {
+            for (int i = 0; i < keyLength; i++) {
+                int column = i;
+                columnTasks.add(() -> {
+                    options.cancellation().throwIfCancelled();
+                    int[] histogram = ByteHistogram.of(ciphertext, column, keyLength);
+                    return findBestSingleByteKeys(histogram, scorer, new float[languages]);
+                });
+            }
+        }
+        List<byte[]> columnKeys = BruteForceExecutor.invokeAll(columnTasks, options.parallelism());
+        phaseStart = recordPhase(AlgorithmMetrics.PHASE_COLUMN_SOLVING, phaseStart);
 
-                for (int i = 0; i < keyLength; i++) {
-                    key[i] = findBestSingleByteKey(transposedBlocks.get(i), langTable).getKey();
+        // Assemble the key of every (key length, language). Languages that agree on a key share
+        // its plaintext, which is deciphered and scored for all of them at once. Only the scores
+        // are kept: the plaintexts are decoded if a listener waits for them.
+        List<byte[][]> keysByKeyLength = new ArrayList<>();
+        List<Callable<float[]>> candidateTasks = new ArrayList<>();
+        int columnOffset = 0;
+        for (int keyLength : keyLengths) {
+            byte[][] keys = new byte[languages][keyLength];
+            for (int i = 0; i < keyLength; i++) {
+                byte[] keyBytes = columnKeys.get(columnOffset + i);
+                for (int lang = 0; lang < languages; lang++) {
+                    keys[lang][i] = keyBytes[lang];
                 }
+            }
+            columnOffset += keyLength;
+            keysByKeyLength.add(keys);
 
-                byte[] plaintext = execute(ciphertext, key);
-                float score = calculateScore(plaintext, langTable);
-
-                if (score > bestResultForLang.score()) {
-                    bestResultForLang = new BruteForce(
-                            lang,
-                            new String(plaintext, StandardCharsets.UTF_8),
-                            new String(key, StandardCharsets.UTF_8),
-                            score
-                    );
+            candidateTasks.add(() -> {
+                float[] scores = new float[languages];
+                boolean[] scored = new boolean[languages];
+                byte[] plaintext = new byte[ciphertext.length];
+                for (int lang = 0; lang < languages; lang++) {
+                    if (scored[lang]) continue;
+                    options.cancellation().throwIfCancelled();
+                    byte[] key = keys[lang];
+                    execute(ciphertext, key, plaintext, plaintext.length);
+                    float[] keyScores = scorer.scoreText(plaintext);
+                    for (int other = lang; other < languages; other++) {
+                        if (!scored[other] && Arrays.equals(keys[other], key)) {
+                            scores[other] = keyScores[other];
+                            scored[other] = true;
+                            if (options.isListened()) {
+                                options.emit(toBruteForce(scorer.language(other), plaintext, key, scores[other], options));
+                            }
+                        }
+                    }
                 }
+                return scores;
+            });
+        }
+        List<float[]> candidateScores = BruteForceExecutor.invokeAll(candidateTasks, options.parallelism());
+
+        // Keep the best keys of each language, the most likely key length first on ties
+        TopCandidates top = new TopCandidates(languages, options.topKOr(DEFAULT_TOP_K), keyLengths.size());
+        for (int i = 0; i < keyLengths.size(); i++) {
+            for (int lang = 0; lang < languages; lang++) {
+                top.offer(lang, keysByKeyLength.get(i)[lang], candidateScores.get(i)[lang]);
             }
-            results.add(bestResultForLang);
         }
-        results.sort((a, b) -> b.score().compareTo(a.score()));
+        phaseStart = recordPhase(AlgorithmMetrics.PHASE_FINAL_SCORING, phaseStart);
+        METRICS.recordBruteforce(256L * columnTasks.size() * languages, keyLengths.size(), languages);
+
+        // Only the winners are deciphered again, as far as the preview goes
+        List<BruteForce> results = new ArrayList<>();
+        byte[] plaintext = new byte[options.previewBytes(ciphertext.length)];
+        for (TopCandidates.Candidate candidate : top.best()) {
+            options.cancellation().throwIfCancelled();
+            execute(ciphertext, candidate.key(), plaintext, plaintext.length);
+            results.add(toBruteForce(scorer.language(candidate.language()), plaintext, candidate.key(),
+                    candidate.score(), options));
+        }
+        recordPhase(AlgorithmMetrics.PHASE_MATERIALIZATION, phaseStart);
         return results;
     }
 
-    private int hammingDistance(byte[] a, byte[] b) {
-        int distance = 0;
-        for (int i = 0; i < a.length; i++) {
-            distance += Integer.bitCount(a[i] ^ b[i]);
+    private static BruteForce toBruteForce(String language, byte[] plaintext, byte[] key, float score,
+                                           BruteForceOptions options) {
+        return new BruteForce(
+                language,
+                options.decode(plaintext),
+                new String(smallestPeriod(key), StandardCharsets.UTF_8),
+                score
+        );
+    }
+
+    /**
+     * Records a phase of the attack that started at {@code start}.
+     *
+     * @return The start of the next phase.
+     */
+    private static long recordPhase(String phase, long start) {
+        long end = System.nanoTime();
+        METRICS.recordPhase(phase, end - start);
+        return end;
+    }
+
+    /**
+     * Counts the differing bits of {@code data[a, a + length)} and {@code data[b, b + length)},
+     * comparing 8 bytes at a time straight from the array.
+     */
+    private static long hammingDistance(byte[] data, int a, int b, int length) {
+        long distance = 0;
+        int i = 0;
+        for (; i + Long.BYTES <= length; i += Long.BYTES) {
+            distance += Long.bitCount((long) LONG_VIEW.get(data, a + i) ^ (long) LONG_VIEW.get(data, b + i));
+        }
+        for (; i < length; i++) {
+            distance += Integer.bitCount((data[a + i] ^ data[b + i]) & 0xFF);
         }
         return distance;
     }
 
+    /**
+     * Ranks the key lengths by the normalized Hamming distance between every block of the
+     * ciphertext and the next one, i.e., between the ciphertext and itself shifted by the key
+     * length. At the right key length both bytes of a pair were XOR-ed with the same key byte,
+     * so the distance is that of the plaintexts, which is lower than that of random bytes.
+     *
+     * @return Up to {@code count} key lengths, most likely first.
+     */
+    private List<Integer> findKeyLengths(byte[] ciphertext, int maxKeyLength, int count, int parallelism,
+                                         CancellationToken cancellation) {
+        List<Integer> keyLengths = new ArrayList<>();
+        // Each column needs a few bytes to be solved, so the ciphertext must span at least MIN_BLOCKS keys
+        for (int keyLength = 2; keyLength <= Math.min(maxKeyLength, ciphertext.length / MIN_BLOCKS); keyLength++) {
+            keyLengths.add(keyLength);
+        }
+
+        List<Callable<Float>> tasks = new ArrayList<>();
+        for (int keyLength : keyLengths) {
+            tasks.add(() -> {
+                cancellation.throwIfCancelled();
+                int pairs = ciphertext.length - keyLength;
+                return (float) hammingDistance(ciphertext, 0, keyLength, pairs) / pairs;
+            });
+        }
+        List<Float> distances = BruteForceExecutor.invokeAll(tasks, parallelism);
+
+        Integer[] order = new Integer[keyLengths.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(distances::get));
 
-    private List<Integer> findKeyLengths(byte[] ciphertext, int count) {
-        Map<Integer, Float> distances = new HashMap<>();
-        for (int keyLength = 2; keyLength <= Math.min(30,ciphertext.length / 5); keyLength++) {
-            byte[] chunk1 = Arrays.copyOfRange(ciphertext, 0, keyLength);
-            byte[] chunk2 = Arrays.copyOfRange(ciphertext, keyLength, 2 * keyLength);
-            byte[] chunk3 = Arrays.copyOfRange(ciphertext, 2 * keyLength, 3 * keyLength);
-            byte[] chunk4 = Arrays.copyOfRange(ciphertext, 3 * keyLength, 4 * keyLength);
-            byte[] chunk5 = Arrays.copyOfRange(ciphertext, 4 * keyLength, 5 * keyLength);
-
-            // Calculate normalized distance for all 10 pairs
-            float dist1 = (float) hammingDistance(chunk1, chunk2) / keyLength;
-            float dist2 = (float) hammingDistance(chunk1, chunk3) / keyLength;
-            float dist3 = (float) hammingDistance(chunk1, chunk4) / keyLength;
-            float dist4 = (float) hammingDistance(chunk1, chunk5) / keyLength;
-            float dist5 = (float) hammingDistance(chunk2, chunk3) / keyLength;
-            float dist6 = (float) hammingDistance(chunk2, chunk4) / keyLength;
-            float dist7 = (float) hammingDistance(chunk2, chunk5) / keyLength;
-            float dist8 = (float) hammingDistance(chunk3, chunk4) / keyLength;
-            float dist9 = (float) hammingDistance(chunk3, chunk5) / keyLength;
-            float dist10 = (float) hammingDistance(chunk4, chunk5) / keyLength;
-
-            // Average the 10 distances
-            float averageDistance = (dist1 + dist2 + dist3 + dist4 + dist5 + dist6 + dist7 + dist8 + dist9 + dist10) / 10.0f;
-            distances.put(keyLength, averageDistance);
+        double mean = 0;
+        for (float distance : distances) {
+            mean += distance;
         }
+        mean /= distances.size();
+        double variance = 0;
+        for (float distance : distances) {
+            variance += (distance - mean) * (distance - mean);
+        }
+        double margin = EQUIVALENT_DEVIATIONS * Math.sqrt(variance / distances.size());
+
+        // Multiples of the real key length are just as close, but their longer keys overfit the
+        // columns. Keep only the shortest of a family of equivalent lengths: a divisor replaces a
+        // selected length if it is as close as the best length of its family, and the multiples
+        // of a length selected on its own distance are skipped. Those of a replacement are not,
+        // so that a divisor wrongly taken for the key length does not also rule out the right one.
+        List<Integer> selected = new ArrayList<>();
+        List<Float> familyDistances = new ArrayList<>();
+        List<Boolean> replacements = new ArrayList<>();
+        for (int index : order) {
+            if (selected.size() == count) break;
+            int keyLength = keyLengths.get(index);
+            float distance = distances.get(index);
 
-        return distances.entrySet().stream()
-                .sorted(Map.Entry.comparingByValue())
-                .limit(count)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+            boolean covered = false;
+            for (int i = 0; i < selected.size(); i++) {
+                int other = selected.get(i);
+                if (keyLength % other == 0 && !replacements.get(i)) {
+                    covered = true;
+                    break;
+                }
+                if (other % keyLength == 0 && distance - familyDistances.get(i) <= margin) {
+                    selected.set(i, keyLength);
+                    replacements.set(i, true);
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered) {
+                selected.add(keyLength);
+                familyDistances.add(distance);
+                replacements.add(false);
+            }
+        }
+        return selected;
     }
 
-    private List<byte[]> transposeCiphertext(byte[] ciphertext, int keyLength) {
-        List<byte[]> blocks = new ArrayList<>();
-        for (int i = 0; i < keyLength; i++) {
-            byte[] block = new byte[(ciphertext.length + keyLength - 1 - i) / keyLength];
-            for (int j = 0; j * keyLength + i < ciphertext.length; j++) {
-                block[j] = ciphertext[j * keyLength + i];
+    /**
+     * Reduces a key made of a shorter key repeated (e.g., "ICEICE") to that shorter key.
+     */
+    private static byte[] smallestPeriod(byte[] key) {
+        for (int period = 1; period < key.length; period++) {
+            if (key.length % period != 0) continue;
+            boolean repeats = true;
+            for (int i = period; i < key.length && repeats; i++) {
+                repeats = key[i] == key[i - period];
+            }
+            if (repeats) {
+                return Arrays.copyOf(key, period);
             }
-            blocks.add(block);
         }
-        return blocks;
+        return key;
     }
 
     private byte[] execute(byte[] input, byte[] key) {
         if (key == null || key.length == 0) return input;
         byte[] output = new byte[input.length];
-        for (int i = 0; i < input.length; i++) {
-            output[i] = (byte) (input[i] ^ key[i % key.length]);
-        }
+        execute(input, key, output, input.length);
         return output;
     }
+
+    /**
+     * XORs the first {@code length} bytes of the input with the repeated key into {@code output}.
+     */
+    private static void execute(byte[] input, byte[] key, byte[] output, int length) {
+        ByteKernel kernel = ByteKernels.get();
+        kernel.xor(input, 0, output, 0, length, kernel.expand(key), 0);
+    }
 }
\ No newline at end of file
@@ -1,17 +1,30 @@
 package ine5417.algorithms.implementations;
 
 import ine5417.algorithms.Algorithm;
-import ine5417.commom.Frequency;
+import ine5417.algorithms.AlgorithmMetrics;
+import ine5417.algorithms.BruteForceOptions;
+import ine5417.algorithms.StreamTransform;
+import ine5417.algorithms.TopCandidates;
+import ine5417.algorithms.kernels.ByteKernels;
+import ine5417.commom.ByteHistogram;
+import ine5417.commom.MultiLanguageScorer;
+import ine5417.commom.ScoringProfile;
 import ine5417.records.BruteForce;
-import org.apache.commons.lang3.tuple.Pair; // You might need to add this import
+import ine5417.records.CiphertextStatistics;
 
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 public class SingleKeyXOR implements Algorithm {
     public static final String IDENTIFIER = "singlekeyxor";
+    private static final AlgorithmMetrics METRICS = AlgorithmMetrics.of(IDENTIFIER);
+    /**
+     * Score of a byte that is not part of the language profile
+     */
+    protected static final float UNKNOWN_BYTE_SCORE = -5.0f;
+    private static final int DEFAULT_TOP_K = 1;
 
     @Override
     public byte[] cipher(byte[] toCipher, byte[] key) {
@@ -24,58 +37,120 @@ public class SingleKeyXOR implements Algorithm {
     }
 
     @Override
-    public List<BruteForce> bruteforce(byte[] ciphertext) {
-        List<BruteForce> result = new ArrayList<>();
-        for (String lang : Frequency.availableLanguages) {
-            Map<Byte, Float> langTable = Frequency.tables.get(lang);
+    public StreamTransform cipherStream(byte[] key) {
+        byte keyByte = key[0];
+        return new StreamTransform() {
+            @Override
+            public void update(byte[] buffer, int offset, int length) {
+                ByteKernels.get().xor(buffer, offset, buffer, offset, length, keyByte);
+            }
 
-            Pair<Byte, Float> bestResult = findBestSingleByteKey(ciphertext, langTable);
-            byte bestKey = bestResult.getKey();
-            float bestScore = bestResult.getValue();
+            @Override
+            public void update(ByteBuffer buffer, int offset, int length) {
+                ByteKernels.get().xor(buffer, offset, length, keyByte);
+            }
+        };
+    }
 
-            byte[] bestGuess = execute(ciphertext, new byte[]{bestKey});
+    @Override
+    public StreamTransform decipherStream(byte[] key) {
+        return cipherStream(key);
+    }
 
-            result.add(new BruteForce(
-                    lang,
-                    new String(bestGuess, StandardCharsets.UTF_8),
-                    String.valueOf((char)bestKey),
-                    bestScore
-            ));
-        }
-        return result;
+    /**
+     * XOR-ing text with a non-zero byte turns its spaces into something else, so it no longer reads
+     * like text, but it keeps the index of coincidence of the bytes.
+     */
+    @Override
+    public boolean isPlausible(CiphertextStatistics statistics) {
+        return !statistics.looksLikeText() && statistics.hasSingleKeyByteIndex();
     }
 
-    public Pair<Byte, Float> findBestSingleByteKey(byte[] ciphertext, Map<Byte, Float> langTable) {
-        byte bestKey = 0;
-        float bestScore = Float.NEGATIVE_INFINITY;
+    @Override
+    public List<BruteForce> bruteforce(byte[] ciphertext, BruteForceOptions options) {
+        List<BruteForce> result = new ArrayList<>();
+        long scoringStart = System.nanoTime();
+        int[] histogram = ByteHistogram.of(ciphertext);
 
+        List<ScoringProfile> profiles = new ArrayList<>();
+        for (ScoringProfile profile : options.profiles()) {
+            profiles.add(profile.withDefault(UNKNOWN_BYTE_SCORE));
+        }
+        MultiLanguageScorer scorer = MultiLanguageScorer.of(profiles);
+        options.cancellation().throwIfCancelled();
+        TopCandidates top = new TopCandidates(scorer.size(), options.topKOr(DEFAULT_TOP_K), 256);
+        float[] scores = new float[scorer.size()];
         for (int keyGuess = 0; keyGuess < 256; keyGuess++) {
-            byte currentKey = (byte) keyGuess;
-            byte[] potentialPlaintext = execute(ciphertext, new byte[]{currentKey});
-            float score = calculateScore(potentialPlaintext, langTable);
+            scorer.scoreXor(histogram, keyGuess, scores);
+            for (int lang = 0; lang < scores.length; lang++) {
+                if (top.accepts(lang, scores[lang])) {
+                    top.offer(lang, new byte[]{(byte) keyGuess}, scores[lang]);
+                }
+            }
+        }
+        long materializationStart = System.nanoTime();
 
-            if (score > bestScore) {
-                bestScore = score;
-                bestKey = currentKey;
+        // Languages that agree on the key share its plaintext, deciphered only as far as the preview goes
+        int length = options.previewBytes(ciphertext.length);
+        String[] plaintexts = new String[256];
+        for (int lang = 0; lang < scorer.size(); lang++) {
+            for (TopCandidates.Candidate candidate : top.best(lang)) {
+                options.cancellation().throwIfCancelled();
+                byte bestKey = candidate.key()[0];
+                if (plaintexts[bestKey & 0xFF] == null) {
+                    plaintexts[bestKey & 0xFF] = options.decode(execute(ciphertext, bestKey, length));
+                }
+                result.add(options.emit(new BruteForce(
+                        scorer.language(lang),
+                        plaintexts[bestKey & 0xFF],
+                        String.valueOf((char) bestKey),
+                        candidate.score()
+                )));
             }
         }
-        return Pair.of(bestKey, bestScore);
+        METRICS.recordPhase(AlgorithmMetrics.PHASE_FINAL_SCORING, materializationStart - scoringStart);
+        METRICS.recordPhase(AlgorithmMetrics.PHASE_MATERIALIZATION, System.nanoTime() - materializationStart);
+        METRICS.recordBruteforce(256L * scorer.size(), 1, scorer.size());
+        return result;
     }
 
+    /**
+     * Finds, for every language of {@code scorer}, the single-byte key whose plaintext scores best,
+     * working only on the byte histogram of the ciphertext: each of the 256 keys is scored for all
+     * the languages in the same pass over the histogram, so no candidate plaintext is materialized.
+     *
+     * @param histogram  The byte histogram of the ciphertext (see {@link ByteHistogram}).
+     * @param scorer     The languages used to score the candidates.
+     * @param bestScores Receives the score of the best key of each language.
+     * @return The best key of each language.
+     */
+    public byte[] findBestSingleByteKeys(int[] histogram, MultiLanguageScorer scorer, float[] bestScores) {
+        byte[] bestKeys = new byte[scorer.size()];
+        Arrays.fill(bestScores, 0, scorer.size(), Float.NEGATIVE_INFINITY);
+        float[] scores = new float[scorer.size()];
 
-    protected float calculateScore(byte[] plaintext, Map<Byte, Float> frequencyTable) {
-        float score = 0;
-        for (byte b : plaintext) {
-            score += frequencyTable.getOrDefault(b, -5.0f);
+        for (int keyGuess = 0; keyGuess < 256; keyGuess++) {
+            scorer.scoreXor(histogram, keyGuess, scores);
+            for (int lang = 0; lang < scores.length; lang++) {
+                if (scores[lang] > bestScores[lang]) {
+                    bestScores[lang] = scores[lang];
+                    bestKeys[lang] = (byte) keyGuess;
+                }
+            }
         }
-        return score;
+        return bestKeys;
     }
 
     private byte[] execute(byte[] message, byte[] key) {
-        byte[] output = new byte[message.length];
-        for (int i = 0; i < message.length; i++) {
-            output[i] = (byte) (message[i] ^ key[0]);
-        }
+        return execute(message, key[0], message.length);
+    }
+
+    /**
+     * XORs the first {@code length} bytes of the message with the key.
+     */
+    private static byte[] execute(byte[] message, byte key, int length) {
+        byte[] output = new byte[length];
+        ByteKernels.get().xor(message, 0, output, 0, length, key);
         return output;
     }
 }
\ No newline at end of file
@@ -1,19 +1,31 @@
 package ine5417.algorithms.implementations;
 
 import ine5417.algorithms.Algorithm;
-import ine5417.commom.Frequency;
+import ine5417.algorithms.AlgorithmMetrics;
+import ine5417.algorithms.BruteForceExecutor;
+import ine5417.algorithms.BruteForceOptions;
+import ine5417.algorithms.StreamTransform;
+import ine5417.algorithms.TopCandidates;
+import ine5417.algorithms.kernels.ByteKernel;
+import ine5417.algorithms.kernels.ByteKernels;
+import ine5417.commom.MultiLanguageScorer;
 import ine5417.records.BruteForce;
+import ine5417.records.CiphertextStatistics;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.function.Function;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 @SuppressWarnings("unused")
 public class Vigenere implements Algorithm {
     public static final String IDENTIFIER = "vigenere";
+    private static final AlgorithmMetrics METRICS = AlgorithmMetrics.of(IDENTIFIER);
     private static final int ALPHABET_SIZE = 26;
     private static final int MAX_KEY_LENGTH_TO_TEST = 20;
+    private static final int KEY_LENGTH_CANDIDATES = 3;
+    private static final int DEFAULT_TOP_K = 3;
 
     @Override
     public byte[] cipher(byte[] plaintext, byte[] key) {
@@ -25,109 +37,274 @@ public class Vigenere implements Algorithm {
         return process(toDecrypt, key, false);
     }
 
+    @Override
+    public StreamTransform cipherStream(byte[] key) {
+        return stream(key, true);
+    }
+
+    @Override
+    public StreamTransform decipherStream(byte[] key) {
+        return stream(key, false);
+    }
+
+    private StreamTransform stream(byte[] key, boolean encrypt) {
+        if (key == null || key.length == 0) return (buffer, offset, length) -> {};
+        byte[] streamKey = key.clone();
+        ByteKernel kernel = ByteKernels.get();
+        byte[] shifts = shifts(key, encrypt);
+        ByteKernel.ExpandedKey expandedShifts = shifts != null ? kernel.expand(shifts) : null;
+        return new StreamTransform() {
+            // The key only advances on letters, so its position must survive chunk boundaries
+            private int keyIndex = 0;
+
+            @Override
+            public void update(byte[] buffer, int offset, int length) {
+                keyIndex = expandedShifts != null
+                        ? kernel.shiftLetters(buffer, offset, buffer, offset, length, expandedShifts, keyIndex)
+                        : process(buffer, offset, buffer, offset, length, streamKey, keyIndex, encrypt);
+            }
+
+            @Override
+            public void update(ByteBuffer buffer, int offset, int length) {
+                if (expandedShifts != null) {
+                    keyIndex = kernel.shiftLetters(buffer, offset, length, expandedShifts, keyIndex);
+                } else {
+                    StreamTransform.super.update(buffer, offset, length);
+                }
+            }
+        };
+    }
+
     private byte[] process(byte[] input, byte[] key, boolean encrypt) {
         if (key == null || key.length == 0) return input;
         byte[] output = new byte[input.length];
-        int keyIndex = 0;
-        for (int i = 0; i < input.length; i++) {
-            char charIn = (char) input[i];
+        byte[] shifts = shifts(key, encrypt);
+        if (shifts != null) {
+            ByteKernel kernel = ByteKernels.get();
+            kernel.shiftLetters(input, 0, output, 0, input.length, kernel.expand(shifts), 0);
+        } else {
+            process(input, 0, output, 0, input.length, key, 0, encrypt);
+        }
+        return output;
+    }
+
+    /**
+     * @return The forward rotation applied by each letter of the key, or null if the key is not
+     * made of letters only, in which case it is left to {@link #process(byte[], int, byte[], int, int, byte[], int, boolean)}.
+     */
+    private static byte[] shifts(byte[] key, boolean encrypt) {
+        byte[] shifts = new byte[key.length];
+        for (int i = 0; i < key.length; i++) {
+            int shift = Character.toUpperCase((char) key[i]) - 'A';
+            if (shift < 0 || shift >= ALPHABET_SIZE) return null;
+            shifts[i] = (byte) (encrypt ? shift : (ALPHABET_SIZE - shift) % ALPHABET_SIZE);
+        }
+        return shifts;
+    }
+
+    /**
+     * Shifts the letters of {@code input[offset, offset + length)} into {@code output}, starting at
+     * position {@code keyIndex} of the key.
+     *
+     * @return The position of the key after the last letter processed.
+     */
+    private static int process(byte[] input, int offset, byte[] output, int outputOffset, int length,
+                               byte[] key, int keyIndex, boolean encrypt) {
+        for (int i = 0; i < length; i++) {
+            char charIn = (char) input[offset + i];
             char charKey = (char) key[keyIndex % key.length];
             if (charIn >= 'a' && charIn <= 'z') {
                 int shift = Character.toUpperCase(charKey) - 'A';
-                int offset = encrypt ? (charIn - 'a' + shift) : (charIn - 'a' - shift + ALPHABET_SIZE);
-                output[i] = (byte) ('a' + (offset % ALPHABET_SIZE));
-                keyIndex++;
+                int offsetInAlphabet = encrypt ? (charIn - 'a' + shift) : (charIn - 'a' - shift + ALPHABET_SIZE);
+                output[outputOffset + i] = (byte) ('a' + (offsetInAlphabet % ALPHABET_SIZE));
+                keyIndex = (keyIndex + 1) % key.length;
             } else if (charIn >= 'A' && charIn <= 'Z') {
                 int shift = Character.toUpperCase(charKey) - 'A';
-                int offset = encrypt ? (charIn - 'A' + shift) : (charIn - 'A' - shift + ALPHABET_SIZE);
-                output[i] = (byte) ('A' + (offset % ALPHABET_SIZE));
-                keyIndex++;
+                int offsetInAlphabet = encrypt ? (charIn - 'A' + shift) : (charIn - 'A' - shift + ALPHABET_SIZE);
+                output[outputOffset + i] = (byte) ('A' + (offsetInAlphabet % ALPHABET_SIZE));
+                keyIndex = (keyIndex + 1) % key.length;
             } else {
-                output[i] = (byte) charIn;
+                output[outputOffset + i] = (byte) charIn;
             }
         }
-        return output;
+        return keyIndex;
     }
 
+    /**
+     * Only letters are shifted, so text stays printable; several alphabets may flatten the index
+     * of coincidence of the letters.
+     */
     @Override
-    public List<BruteForce> bruteforce(byte[] ciphertext) {
-        List<BruteForce> allResults = new ArrayList<>();
-
-        StringBuilder lettersOnly = new StringBuilder();
-        for (byte b : ciphertext) {
-            char c = (char) (b & 0xFF); // Treat byte as unsigned
-            if (c >= 'a' && c <= 'z') {
-                lettersOnly.append(Character.toUpperCase(c));
-            } else if (c >= 'A' && c <= 'Z') {
-                lettersOnly.append(c);
-            }
-        }
-        String analyzableText = lettersOnly.toString();
+    public boolean isPlausible(CiphertextStatistics statistics) {
+        return statistics.isPrintableWithLetters();
+    }
 
-        if (analyzableText.length() < 2) {
+    @Override
+    public List<BruteForce> bruteforce(byte[] ciphertext, BruteForceOptions options) {
+        byte[] letters = letterIndexes(ciphertext);
+        if (letters.length < 2) {
             return Collections.emptyList(); // Not enough data to analyze
         }
 
-        List<Integer> topKeyLengths = findTopKeyLengths(analyzableText);
-
-        for (String lang : Frequency.availableLanguages) {
-            List<BruteForce> langResults = new ArrayList<>();
-
-            for (int keyLength : topKeyLengths) {
-                StringBuilder guessedKey = new StringBuilder();
-                for (int i = 0; i < keyLength; i++) {
-                    StringBuilder column = new StringBuilder();
-                    for (int j = i; j < analyzableText.length(); j += keyLength) {
-                        column.append(analyzableText.charAt(j));
-                    }
-                    if (!column.isEmpty()) {
-                        guessedKey.append(findBestKeyCharForColumn(column.toString(), lang));
+        long phaseStart = System.nanoTime();
+        // Letter counts of every column of every key length, computed once and shared by every language
+        List<Callable<int[][]>> countTasks = new ArrayList<>();
+        // Each column needs at least two letters for its index of coincidence
+        int maxKeyLength = Math.min(options.maxKeyLengthOr(MAX_KEY_LENGTH_TO_TEST), letters.length / 2);
+        for (int keyLength = 1; keyLength <= maxKeyLength; keyLength++) {
+            int columns = keyLength;
+            countTasks.add(() -> {
+                options.cancellation().throwIfCancelled();
+                return columnCounts(letters, columns);
+            });
+        }
+        List<int[][]> countsByKeyLength = BruteForceExecutor.invokeAll(countTasks, options.parallelism());
+
+        List<Integer> topKeyLengths = findTopKeyLengths(
+                countsByKeyLength, letters.length, options.keyLengthCandidatesOr(KEY_LENGTH_CANDIDATES));
+        // Accented letters are never shifted but still count towards the expected letter counts
+        int letterTotal = letters.length + countNonAsciiLetters(ciphertext);
+        long solvingStart = System.nanoTime();
+        METRICS.recordPhase(AlgorithmMetrics.PHASE_KEY_LENGTH_DETECTION, solvingStart - phaseStart);
+
+        long scoringNanos = 0;
+        MultiLanguageScorer scorer = MultiLanguageScorer.of(options.profiles());
+        int languages = scorer.size();
+        TopCandidates top = new TopCandidates(languages, options.topKOr(DEFAULT_TOP_K), topKeyLengths.size());
+
+        for (int keyLength : topKeyLengths) {
+            options.cancellation().throwIfCancelled();
+            int[][] columnCounts = countsByKeyLength.get(keyLength - 1);
+            byte[][] keys = new byte[languages][keyLength];
+            int[][] plaintextCounts = new int[languages][ALPHABET_SIZE];
+
+            // Each column is solved for every language in one pass over its 26 shifts
+            for (int i = 0; i < keyLength; i++) {
+                int[] shifts = findBestShiftsForColumn(columnCounts[i], scorer);
+                for (int lang = 0; lang < languages; lang++) {
+                    keys[lang][i] = (byte) ('A' + shifts[lang]);
+                    for (int j = 0; j < ALPHABET_SIZE; j++) {
+                        plaintextCounts[lang][j] += columnCounts[i][(j + shifts[lang]) % ALPHABET_SIZE];
                     }
                 }
+            }
 
-                String keyFound = guessedKey.toString();
-                if (keyFound.isEmpty()) continue;
-
-                byte[] plaintextBytes = decipher(ciphertext, keyFound.getBytes(StandardCharsets.UTF_8));
-                String resultText = new String(plaintextBytes, StandardCharsets.UTF_8);
-
-                double chiSquaredScore = calculateChiSquared(resultText, lang);
+            long scoringStart = System.nanoTime();
+            for (int lang = 0; lang < languages; lang++) {
+                double chiSquaredScore = scorer.profile(lang).chiSquared(plaintextCounts[lang], letterTotal, 0);
                 float finalScore = (float) (1 / (chiSquaredScore + 1e-9));
-
-                langResults.add(new BruteForce(lang, resultText, keyFound, finalScore));
+                top.offer(lang, keys[lang], finalScore);
             }
+            scoringNanos += System.nanoTime() - scoringStart;
+        }
+
+        long materializationStart = System.nanoTime();
+        METRICS.recordPhase(AlgorithmMetrics.PHASE_COLUMN_SOLVING, materializationStart - solvingStart - scoringNanos);
+        METRICS.recordPhase(AlgorithmMetrics.PHASE_FINAL_SCORING, scoringNanos);
 
-            langResults.sort(Comparator.comparing(BruteForce::score).reversed());
-            allResults.addAll(langResults.stream().limit(3).toList());
+        // Only the selected keys are deciphered, once even if several languages picked them, and
+        // rescored by the n-gram models of every language in the same pass
+        Map<String, List<TopCandidates.Candidate>> byKey = new LinkedHashMap<>();
+        for (TopCandidates.Candidate candidate : top.best()) {
+            byKey.computeIfAbsent(new String(candidate.key(), StandardCharsets.UTF_8), key -> new ArrayList<>())
+                    .add(candidate);
+        }
+        List<Callable<List<BruteForce>>> materializeTasks = new ArrayList<>();
+        for (Map.Entry<String, List<TopCandidates.Candidate>> entry : byKey.entrySet()) {
+            materializeTasks.add(() -> {
+                options.cancellation().throwIfCancelled();
+                byte[] plaintext = decipher(ciphertext, entry.getValue().get(0).key());
+                float[] scores = scorer.scoreText(plaintext);
+                String text = options.decode(plaintext);
+                List<BruteForce> results = new ArrayList<>();
+                for (TopCandidates.Candidate candidate : entry.getValue()) {
+                    int lang = candidate.language();
+                    results.add(options.emit(new BruteForce(
+                            scorer.language(lang),
+                            text,
+                            entry.getKey(),
+                            scorer.hasNgramModel(lang) ? scores[lang] : candidate.score()
+                    )));
+                }
+                return results;
+            });
+        }
+        List<BruteForce> allResults = new ArrayList<>();
+        for (List<BruteForce> results : BruteForceExecutor.invokeAll(materializeTasks, options.parallelism())) {
+            allResults.addAll(results);
         }
+        METRICS.recordPhase(AlgorithmMetrics.PHASE_MATERIALIZATION, System.nanoTime() - materializationStart);
+        int keyBytes = topKeyLengths.stream().mapToInt(Integer::intValue).sum();
+        METRICS.recordBruteforce((long) ALPHABET_SIZE * keyBytes * languages, maxKeyLength, languages);
 
         allResults.sort(Comparator.comparing(BruteForce::score).reversed());
         return allResults;
     }
 
+    /**
+     * Extracts the ASCII letters of the text as alphabet indexes (0 for 'a' or 'A').
+     */
+    private static byte[] letterIndexes(byte[] text) {
+        byte[] letters = new byte[text.length];
+        int count = 0;
+        for (byte b : text) {
+            if (b >= 'a' && b <= 'z') {
+                letters[count++] = (byte) (b - 'a');
+            } else if (b >= 'A' && b <= 'Z') {
+                letters[count++] = (byte) (b - 'A');
+            }
+        }
+        return count == letters.length ? letters : Arrays.copyOf(letters, count);
+    }
+
+    private static int countNonAsciiLetters(byte[] text) {
+        for (byte b : text) {
+            if (b < 0) {
+                return (int) new String(text, StandardCharsets.UTF_8).chars()
+                        .filter(c -> c >= 0x80 && Character.isLetter(c))
+                        .count();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Counts the letters of every column of the text laid out in rows of {@code keyLength} letters.
+     *
+     * @return counts[column][letter]
+     */
+    private static int[][] columnCounts(byte[] letters, int keyLength) {
+        int[][] counts = new int[keyLength][ALPHABET_SIZE];
+        int column = 0;
+        for (byte letter : letters) {
+            counts[column][letter]++;
+            if (++column == keyLength) column = 0;
+        }
+        return counts;
+    }
+
     /**
      * Finds the most likely key lengths by calculating the Index of Coincidence (IC).
      * Returns a list of the top 'count' key lengths.
      */
-    private List<Integer> findTopKeyLengths(String text) {
+    private List<Integer> findTopKeyLengths(List<int[][]> countsByKeyLength, int letterCount, int count) {
         // Use Map.Entry as a Pair to store <KeyLength, IC_Score>
         List<Map.Entry<Integer, Double>> candidates = new ArrayList<>();
         final double targetIc = 0.067;
 
         // Calculate IC for key length 1 as a baseline.
-        candidates.add(new AbstractMap.SimpleEntry<>(1, calculateIC(text)));
+        candidates.add(new AbstractMap.SimpleEntry<>(1, calculateIC(countsByKeyLength.get(0)[0], letterCount)));
 
         // Test other key lengths.
-        for (int keyLength = 2; keyLength <= MAX_KEY_LENGTH_TO_TEST; keyLength++) {
+        for (int keyLength = 2; keyLength <= countsByKeyLength.size(); keyLength++) {
+            int[][] columnCounts = countsByKeyLength.get(keyLength - 1);
             double avgIc = 0.0;
             int validColumns = 0;
             for (int i = 0; i < keyLength; i++) {
-                StringBuilder column = new StringBuilder();
-                for (int j = i; j < text.length(); j += keyLength) {
-                    column.append(text.charAt(j));
-                }
-                if (column.length() > 1) {
-                    avgIc += calculateIC(column.toString());
+                // Column i holds the letters i, i + keyLength, i + 2 * keyLength, ...
+                int columnLength = letterCount > i ? (letterCount - i + keyLength - 1) / keyLength : 0;
+                if (columnLength > 1) {
+                    avgIc += calculateIC(columnCounts[i], columnLength);
                     validColumns++;
                 }
             }
@@ -142,77 +319,42 @@ public class Vigenere implements Algorithm {
         // Return the top 'count' key lengths
         return candidates.stream()
                 .map(Map.Entry::getKey)
-                .limit(3)
+                .limit(count)
                 .collect(Collectors.toList());
     }
 
-    private double calculateIC(String text) {
-        if (text.length() < 2) return 0.0;
-        int[] frequencies = new int[ALPHABET_SIZE];
-        for (char c : text.toCharArray()) {
-            frequencies[c - 'A']++;
-        }
+    private double calculateIC(int[] frequencies, int length) {
+        if (length < 2) return 0.0;
         double sum = 0.0;
         for (int freq : frequencies) {
             sum += freq * (freq - 1.0);
         }
-        return sum / (text.length() * (text.length() - 1.0));
-    }
-
-    private char findBestKeyCharForColumn(String column, String language) {
-        double minChiSquared = Double.POSITIVE_INFINITY;
-        char bestKeyChar = 'A';
-        for (int shift = 0; shift < ALPHABET_SIZE; shift++) {
-            StringBuilder decryptedColumn = new StringBuilder();
-            for (char c : column.toCharArray()) {
-                int decryptedCharIndex = (c - 'A' - shift + ALPHABET_SIZE) % ALPHABET_SIZE;
-                decryptedColumn.append((char) ('A' + decryptedCharIndex));
-            }
-            double chiSquared = calculateChiSquared(decryptedColumn.toString(), language);
-            if (chiSquared < minChiSquared) {
-                minChiSquared = chiSquared;
-                bestKeyChar = (char) ('A' + shift);
-            }
-        }
-        return bestKeyChar;
+        return sum / (length * (length - 1.0));
     }
 
-    private double calculateChiSquared(String text, String language) {
-        if (text.isEmpty()) return Double.POSITIVE_INFINITY;
-
-        Map<Byte, Float> expectedFrequencies = Frequency.tables.get(language);
-        if (expectedFrequencies == null) return Double.POSITIVE_INFINITY;
-
-        Map<Byte, Long> observedCounts = text.chars()
-                .mapToObj(c -> (byte) c)
-                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
-
-        double chiSquared = 0.0;
-        int letterCount = 0;
-
-        // Count only the letters for calculating expected counts
-        for (char c : text.toCharArray()) {
-            if (Character.isLetter(c)) {
-                letterCount++;
-            }
+    /**
+     * Evaluates the 26 shifts of a column by rotating its letter counts, for every language at once.
+     *
+     * @return The shift with the lowest chi-squared statistic of each language.
+     */
+    private int[] findBestShiftsForColumn(int[] columnCounts, MultiLanguageScorer scorer) {
+        int columnLength = 0;
+        for (int count : columnCounts) {
+            columnLength += count;
         }
-        if (letterCount == 0) return Double.POSITIVE_INFINITY;
-
-        for (Map.Entry<Byte, Float> entry : expectedFrequencies.entrySet()) {
-            byte character = entry.getKey();
-            float expectedPercent = entry.getValue();
-
-            // Only compare letter frequencies
-            if (Character.isLetter((char) (character & 0xFF))) {
-                double expectedCount = (letterCount * expectedPercent) / 100.0;
-                long observedCount = observedCounts.getOrDefault(character, 0L)
-                        + observedCounts.getOrDefault((byte) Character.toLowerCase(character), 0L);
-
-                if (expectedCount > 0) {
-                    chiSquared += Math.pow(observedCount - expectedCount, 2) / expectedCount;
+        double[] minChiSquared = new double[scorer.size()];
+        Arrays.fill(minChiSquared, Double.POSITIVE_INFINITY);
+        int[] bestShifts = new int[scorer.size()];
+        double[] chiSquared = new double[scorer.size()];
+        for (int shift = 0; shift < ALPHABET_SIZE; shift++) {
+            scorer.chiSquared(columnCounts, columnLength, shift, chiSquared);
+            for (int lang = 0; lang < chiSquared.length; lang++) {
+                if (chiSquared[lang] < minChiSquared[lang]) {
+                    minChiSquared[lang] = chiSquared[lang];
+                    bestShifts[lang] = shift;
                 }
             }
         }
-        return chiSquared;
+        return bestShifts;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,88 @@
+package ine5417.algorithms.kernels;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The byte loops at the core of the XOR and letter-shift ciphers, over
+ * {@code input[offset, offset + length)} into {@code output[outputOffset, outputOffset + length)}.
+ * The input and output ranges may be the same range of the same array. Each loop also has an
+ * in-place form over {@code buffer[offset, offset + length)}, at absolute positions of a
+ * {@link ByteBuffer}, heap or direct, whose position and limit are left unchanged.
+ * <p>
+ * Repeating keys are passed {@linkplain #expand(byte[]) expanded} to the width of the kernel, so
+ * that a kernel can read the key bytes of a whole block at any position of the key.
+ * <p>
+ * Implementations are stateless and thread-safe; {@link ByteKernels#get()} picks the fastest one
+ * available.
+ */
+public interface ByteKernel {
+    /**
+     * A repeating key laid out for a kernel.
+     *
+     * @param bytes  The key repeated over at least {@code length + width - 1} bytes, where
+     *               {@code width} is the number of bytes a kernel processes at once.
+     * @param length The length of the key.
+     */
+    record ExpandedKey(byte[] bytes, int length) {}
+
+    /**
+     * @return The name of the kernel.
+     */
+    String name();
+
+    /**
+     * @return The number of bytes processed at once.
+     */
+    int width();
+
+    /**
+     * @param key A non-empty key.
+     * @return The key laid out for this kernel.
+     */
+    default ExpandedKey expand(byte[] key) {
+        int length = key.length;
+        byte[] bytes = new byte[length + width()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = key[i % length];
+        }
+        return new ExpandedKey(bytes, length);
+    }
+
+    /**
+     * XORs every byte with {@code key}.
+     */
+    void xor(byte[] input, int offset, byte[] output, int outputOffset, int length, byte key);
+
+    /**
+     * XORs the bytes with the repeated key, starting at position {@code keyIndex} of the key.
+     *
+     * @return The position of the key after the last byte.
+     */
+    int xor(byte[] input, int offset, byte[] output, int outputOffset, int length, ExpandedKey key, int keyIndex);
+
+    /**
+     * Rotates every ASCII letter forward in its alphabet, keeping its case, by the shift at the
+     * current position of the repeated {@code shifts}, which advances on letters only; other bytes
+     * are copied as they are.
+     *
+     * @param shifts The shifts, each between 0 and 25.
+     * @return The position of the shifts after the last letter.
+     */
+    int shiftLetters(byte[] input, int offset, byte[] output, int outputOffset, int length,
+                     ExpandedKey shifts, int keyIndex);
+
+    /**
+     * In-place form of {@link #xor(byte[], int, byte[], int, int, byte)}.
+     */
+    void xor(ByteBuffer buffer, int offset, int length, byte key);
+
+    /**
+     * In-place form of {@link #xor(byte[], int, byte[], int, int, ExpandedKey, int)}.
+     */
+    int xor(ByteBuffer buffer, int offset, int length, ExpandedKey key, int keyIndex);
+
+    /**
+     * In-place form of {@link #shiftLetters(byte[], int, byte[], int, int, ExpandedKey, int)}.
+     */
+    int shiftLetters(ByteBuffer buffer, int offset, int length, ExpandedKey shifts, int keyIndex);
+}
@@ -0,0 +1,95 @@
+package ine5417.algorithms.kernels;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Optional;
+
+/**
+ * Picks the {@link ByteKernel} of the ciphers once, when first used.
+ * <p>
+ * The {@link VectorByteKernel} is used when the JVM was started with
+ * {@code --add-modules jdk.incubator.vector} and the platform has wide enough byte vectors;
+ * otherwise, the {@link ScalarByteKernel}. It is loaded reflectively, so that a JVM without the
+ * incubator module never links it. The choice can be forced with
+ * {@code -Dine5417.kernel=scalar} or {@code -Dine5417.kernel=vector}.
+ */
+public final class ByteKernels {
+    /**
+     * System property forcing a kernel: {@code auto} (default), {@code scalar} or {@code vector}
+     */
+    public static final String PROPERTY = "ine5417.kernel";
+    private static final Logger LOGGER = LoggerFactory.getLogger(ByteKernels.class);
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNEL = "ine5417.algorithms.kernels.VectorByteKernel";
+    private static final ByteKernel SCALAR = new ScalarByteKernel();
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private ByteKernels() {}
+
+    private static final class Selected {
+        static final ByteKernel KERNEL = select(System.getProperty(PROPERTY, "auto"));
+    }
+
+    /**
+     * @return The kernel of the ciphers.
+     */
+    public static ByteKernel get() {
+        return Selected.KERNEL;
+    }
+
+    /**
+     * @return The byte-at-a-time kernel.
+     */
+    public static ByteKernel scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * @return The SIMD kernel, if this JVM and platform support it.
+     */
+    public static Optional<ByteKernel> vector() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            Class<?> type = Class.forName(VECTOR_KERNEL, true, ByteKernels.class.getClassLoader());
+            return Optional.of((ByteKernel) type.getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException | LinkageError e) {
+            Throwable cause = e instanceof InvocationTargetException target ? target.getCause() : e;
+            LOGGER.warn("Vector kernel unavailable, falling back to the scalar kernel: {}", cause.toString());
+            LOGGER.debug("Vector kernel failure", cause);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @param name {@code scalar}, {@code vector} or {@code auto}.
+     * @return The kernel of that name; {@code auto} is the vector kernel when available.
+     * @throws IllegalArgumentException If the name is unknown or the vector kernel is unavailable.
+     */
+    public static ByteKernel named(String name) {
+        return switch (name) {
+            case "scalar" -> SCALAR;
+            case "vector" -> vector().orElseThrow(() -> new IllegalArgumentException(
+                    "The vector kernel needs --add-modules " + VECTOR_MODULE + " and wide enough byte vectors"));
+            case "auto" -> vector().orElse(SCALAR);
+            default -> throw new IllegalArgumentException("Unknown kernel: " + name);
+        };
+    }
+
+    private static ByteKernel select(String name) {
+        ByteKernel kernel;
+        try {
+            kernel = named(name);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("{}; using the scalar kernel", e.getMessage());
+            kernel = SCALAR;
+        }
+        LOGGER.info("Cipher kernel: {} ({}-byte blocks)", kernel.name(), kernel.width());
+        return kernel;
+    }
+}
@@ -0,0 +1,124 @@
+package ine5417.algorithms.kernels;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Byte-at-a-time kernel, available on every JVM. Heap buffers are processed through their backing
+ * array, other buffers with absolute gets and puts.
+ */
+public final class ScalarByteKernel implements ByteKernel {
+    private static final int ALPHABET_SIZE = 26;
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public int width() {
+        return 1;
+    }
+
+    @Override
+    public void xor(byte[] input, int offset, byte[] output, int outputOffset, int length, byte key) {
+        for (int i = 0; i < length; i++) {
+            output[outputOffset + i] = (byte) (input[offset + i] ^ key);
+        }
+    }
+
+    @Override
+    public int xor(byte[] input, int offset, byte[] output, int outputOffset, int length, ExpandedKey key, int keyIndex) {
+        byte[] bytes = key.bytes();
+        int keyLength = key.length();
+        int k = keyIndex;
+        for (int i = 0; i < length; i++) {
+            output[outputOffset + i] = (byte) (input[offset + i] ^ bytes[k]);
+            if (++k == keyLength) k = 0;
+        }
+        return k;
+    }
+
+    @Override
+    public int shiftLetters(byte[] input, int offset, byte[] output, int outputOffset, int length,
+                            ExpandedKey shifts, int keyIndex) {
+        byte[] bytes = shifts.bytes();
+        int keyLength = shifts.length();
+        int k = keyIndex;
+        for (int i = 0; i < length; i++) {
+            int c = input[offset + i];
+            int base;
+            if (c >= 'a' && c <= 'z') {
+                base = 'a';
+            } else if (c >= 'A' && c <= 'Z') {
+                base = 'A';
+            } else {
+                output[outputOffset + i] = (byte) c;
+                continue;
+            }
+            int moved = c - base + bytes[k];
+            if (moved >= ALPHABET_SIZE) moved -= ALPHABET_SIZE;
+            output[outputOffset + i] = (byte) (base + moved);
+            if (++k == keyLength) k = 0;
+        }
+        return k;
+    }
+
+    @Override
+    public void xor(ByteBuffer buffer, int offset, int length, byte key) {
+        Objects.checkFromIndexSize(offset, length, buffer.limit());
+        if (buffer.hasArray()) {
+            int at = buffer.arrayOffset() + offset;
+            xor(buffer.array(), at, buffer.array(), at, length, key);
+            return;
+        }
+        for (int i = offset, end = offset + length; i < end; i++) {
+            buffer.put(i, (byte) (buffer.get(i) ^ key));
+        }
+    }
+
+    @Override
+    public int xor(ByteBuffer buffer, int offset, int length, ExpandedKey key, int keyIndex) {
+        Objects.checkFromIndexSize(offset, length, buffer.limit());
+        if (buffer.hasArray()) {
+            int at = buffer.arrayOffset() + offset;
+            return xor(buffer.array(), at, buffer.array(), at, length, key, keyIndex);
+        }
+        byte[] bytes = key.bytes();
+        int keyLength = key.length();
+        int k = keyIndex;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            buffer.put(i, (byte) (buffer.get(i) ^ bytes[k]));
+            if (++k == keyLength) k = 0;
+        }
+        return k;
+    }
+
+    @Override
+    public int shiftLetters(ByteBuffer buffer, int offset, int length, ExpandedKey shifts, int keyIndex) {
+        Objects.checkFromIndexSize(offset, length, buffer.limit());
+        if (buffer.hasArray()) {
+            int at = buffer.arrayOffset() + offset;
+            return shiftLetters(buffer.array(), at, buffer.array(), at, length, shifts, keyIndex);
+        }
+        byte[] bytes = shifts.bytes();
+        int keyLength = shifts.length();
+        int k = keyIndex;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int c = buffer.get(i);
+            int base;
+            if (c >= 'a' && c <= 'z') {
+                base = 'a';
+            } else if (c >= 'A' && c <= 'Z') {
+                base = 'A';
+            } else {
+                continue;
+            }
+            int moved = c - base + bytes[k];
+            if (moved >= ALPHABET_SIZE) moved -= ALPHABET_SIZE;
+            buffer.put(i, (byte) (base + moved));
+            if (++k == keyLength) k = 0;
+        }
+        return k;
+    }
+}
@@ -0,0 +1,208 @@
+package ine5417.algorithms.kernels;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * SIMD kernel on the preferred byte vectors of the platform, built on the incubating Vector API.
+ * <p>
+ * Only loaded by {@link ByteKernels} once {@code jdk.incubator.vector} is known to be in the boot
+ * layer (started with {@code --add-modules jdk.incubator.vector}); the tail of each range that
+ * does not fill a vector goes through the {@link ScalarByteKernel}. Heap buffers are processed
+ * through their backing array, direct buffers through pooled scratch arrays: the buffer loads and
+ * stores of the incubating API changed between releases, while the array ones did not.
+ */
+public final class VectorByteKernel implements ByteKernel {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final int WIDTH = SPECIES.length();
+    /** Below this width the vector loops do not pay for their setup */
+    static final int MIN_WIDTH = 16;
+    private static final byte ALPHABET_SIZE = 26;
+    private static final ByteVector ZERO = ByteVector.zero(SPECIES);
+    /** Bytes of a direct buffer copied to the heap at a time */
+    private static final int SCRATCH_SIZE = 8192;
+
+    private final ScalarByteKernel tail = new ScalarByteKernel();
+    private final BlockingQueue<byte[]> scratch =
+            new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * @throws UnsupportedOperationException If the platform has no byte vectors of at least {@value MIN_WIDTH} lanes.
+     */
+    public VectorByteKernel() {
+        if (WIDTH < MIN_WIDTH) {
+            throw new UnsupportedOperationException("Byte vectors of " + WIDTH + " lanes are too narrow");
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector";
+    }
+
+    @Override
+    public int width() {
+        return WIDTH;
+    }
+
+    @Override
+    public void xor(byte[] input, int offset, byte[] output, int outputOffset, int length, byte key) {
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += WIDTH) {
+            ByteVector.fromArray(SPECIES, input, offset + i)
+                    .lanewise(VectorOperators.XOR, key)
+                    .intoArray(output, outputOffset + i);
+        }
+        tail.xor(input, offset + i, output, outputOffset + i, length - i, key);
+    }
+
+    /**
+     * The key bytes of a block are the {@code WIDTH} expanded bytes from the position of the key,
+     * which then moves by {@code WIDTH % key.length()}: no division per byte.
+     */
+    @Override
+    public int xor(byte[] input, int offset, byte[] output, int outputOffset, int length, ExpandedKey key, int keyIndex) {
+        byte[] bytes = key.bytes();
+        int keyLength = key.length();
+        int step = WIDTH % keyLength;
+        int bound = SPECIES.loopBound(length);
+        int k = keyIndex;
+        int i = 0;
+        for (; i < bound; i += WIDTH) {
+            ByteVector keys = ByteVector.fromArray(SPECIES, bytes, k);
+            ByteVector.fromArray(SPECIES, input, offset + i)
+                    .lanewise(VectorOperators.XOR, keys)
+                    .intoArray(output, outputOffset + i);
+            k += step;
+            if (k >= keyLength) k -= keyLength;
+        }
+        return tail.xor(input, offset + i, output, outputOffset + i, length - i, key, k);
+    }
+
+    /**
+     * Letters are found with a mask on the case-folded bytes. Since the key only advances on
+     * letters, each letter takes the shift at its rank among the letters of the block: a prefix
+     * sum of the mask, which selects the shift from the expanded shifts at the position of the key.
+     * The rotation itself is an add and a masked subtract of 26 on the offsets in the alphabet.
+     */
+    @Override
+    public int shiftLetters(byte[] input, int offset, byte[] output, int outputOffset, int length,
+                            ExpandedKey shifts, int keyIndex) {
+        byte[] bytes = shifts.bytes();
+        int keyLength = shifts.length();
+        int bound = SPECIES.loopBound(length);
+        int k = keyIndex;
+        int i = 0;
+        for (; i < bound; i += WIDTH) {
+            ByteVector text = ByteVector.fromArray(SPECIES, input, offset + i);
+            ByteVector folded = text.lanewise(VectorOperators.OR, (byte) 0x20);
+            VectorMask<Byte> letters = letters(folded);
+            int count = letters.trueCount();
+            if (count > 0) {
+                text = shiftLetters(text, folded, letters, bytes, k);
+                k = (k + count) % keyLength;
+            }
+            text.intoArray(output, outputOffset + i);
+        }
+        return tail.shiftLetters(input, offset + i, output, outputOffset + i, length - i, shifts, k);
+    }
+
+    private static VectorMask<Byte> letters(ByteVector folded) {
+        return folded.compare(VectorOperators.GE, (byte) 'a')
+                .and(folded.compare(VectorOperators.LE, (byte) 'z'));
+    }
+
+    /**
+     * Rotates the letters of a block by the shifts from position {@code k} of the expanded shifts.
+     */
+    private static ByteVector shiftLetters(ByteVector text, ByteVector folded, VectorMask<Byte> letters,
+                                           byte[] shifts, int k) {
+        ByteVector ones = ZERO.blend((byte) 1, letters);
+        ByteVector rank = ones;
+        for (int distance = 1; distance < WIDTH; distance <<= 1) {
+            rank = rank.add(rank.unslice(distance));
+        }
+        ByteVector shift = ByteVector.fromArray(SPECIES, shifts, k)
+                .rearrange(rank.sub(ones).toShuffle());
+        ByteVector index = folded.sub((byte) 'a');
+        ByteVector moved = index.add(shift);
+        moved = moved.sub(ALPHABET_SIZE, moved.compare(VectorOperators.GE, ALPHABET_SIZE));
+        return text.add(moved.sub(index), letters);
+    }
+
+    @Override
+    public void xor(ByteBuffer buffer, int offset, int length, byte key) {
+        Objects.checkFromIndexSize(offset, length, buffer.limit());
+        if (buffer.hasArray()) {
+            int at = buffer.arrayOffset() + offset;
+            xor(buffer.array(), at, buffer.array(), at, length, key);
+            return;
+        }
+        throughScratch(buffer, offset, length, 0, (block, n, k) -> {
+            xor(block, 0, block, 0, n, key);
+            return k;
+        });
+    }
+
+    @Override
+    public int xor(ByteBuffer buffer, int offset, int length, ExpandedKey key, int keyIndex) {
+        Objects.checkFromIndexSize(offset, length, buffer.limit());
+        if (buffer.hasArray()) {
+            int at = buffer.arrayOffset() + offset;
+            return xor(buffer.array(), at, buffer.array(), at, length, key, keyIndex);
+        }
+        return throughScratch(buffer, offset, length, keyIndex,
+                (block, n, k) -> xor(block, 0, block, 0, n, key, k));
+    }
+
+    @Override
+    public int shiftLetters(ByteBuffer buffer, int offset, int length, ExpandedKey shifts, int keyIndex) {
+        Objects.checkFromIndexSize(offset, length, buffer.limit());
+        if (buffer.hasArray()) {
+            int at = buffer.arrayOffset() + offset;
+            return shiftLetters(buffer.array(), at, buffer.array(), at, length, shifts, keyIndex);
+        }
+        return throughScratch(buffer, offset, length, keyIndex,
+                (block, n, k) -> shiftLetters(block, 0, block, 0, n, shifts, k));
+    }
+
+    /**
+     * An in-place array loop over {@code block[0, length)}, from position {@code keyIndex} of the key.
+     */
+    @FunctionalInterface
+    private interface BlockLoop {
+        int apply(byte[] block, int length, int keyIndex);
+    }
+
+    /**
+     * Runs an array loop over a direct buffer, copying it in and out of a pooled scratch array a
+     * block at a time; the position of the key carries over from one block to the next.
+     */
+    private int throughScratch(ByteBuffer buffer, int offset, int length, int keyIndex, BlockLoop loop) {
+        byte[] block = scratch.poll();
+        if (block == null) {
+            block = new byte[SCRATCH_SIZE];
+        }
+        try {
+            int k = keyIndex;
+            for (int done = 0; done < length; ) {
+                int n = Math.min(block.length, length - done);
+                buffer.get(offset + done, block, 0, n);
+                k = loop.apply(block, n, k);
+                buffer.put(offset + done, block, 0, n);
+                done += n;
+            }
+            return k;
+        } finally {
+            scratch.offer(block);
+        }
+    }
+}
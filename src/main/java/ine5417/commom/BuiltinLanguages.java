@@ -0,0 +1,65 @@
+package ine5417.commom;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Map.entry;
+
+/**
+ * The languages bundled with the application: hand-tuned letter frequency tables, and the n-gram
+ * models of {@code /ngrams/<language>.ngram}.
+ */
+final class BuiltinLanguages implements LanguageSource {
+    /**
+     * Defines the character frequency for the English language.
+     */
+    private static final Map<Character, Float> ENGLISH_FREQUENCY = Map.ofEntries(
+            entry('e', 12.49f), entry('t', 9.28f), entry('a', 8.04f), entry('o', 7.64f),
+            entry('i', 7.57f), entry('n', 7.23f), entry('s', 6.51f), entry('r', 6.28f),
+            entry('h', 5.05f), entry('l', 4.07f), entry('d', 3.82f), entry('c', 3.34f),
+            entry('u', 2.73f), entry('m', 2.51f), entry('f', 2.40f), entry('p', 2.14f),
+            entry('g', 1.87f), entry('w', 1.68f), entry('y', 1.66f), entry('b', 1.48f),
+            entry('v', 1.05f), entry('k', 0.54f), entry('x', 0.23f), entry('j', 0.16f),
+            entry('q', 0.12f), entry('z', 0.09f), entry(' ', 5.0f)
+    );
+
+    /**
+     * Defines the character frequency for the Portuguese language.
+     */
+    private static final Map<Character, Float> PORTUGUESE_FREQUENCY = Map.ofEntries(
+            entry('a', 14.63f), entry('e', 12.57f), entry('o', 10.73f), entry('s', 7.81f),
+            entry('r', 6.53f), entry('i', 6.18f), entry('n', 5.05f), entry('d', 4.99f),
+            entry('m', 4.74f), entry('u', 4.63f), entry('t', 4.34f), entry('c', 3.88f),
+            entry('l', 2.78f), entry('p', 2.52f), entry('q', 1.20f), entry('v', 1.58f),
+            entry('g', 1.30f), entry('h', 1.28f), entry('b', 1.04f), entry('f', 1.02f),
+            entry('z', 0.47f), entry('j', 0.40f), entry('x', 0.21f), entry('k', 0.02f),
+            entry('w', 0.01f), entry('y', 0.01f), entry(' ', 15.0f)
+    );
+
+    private static final Map<String, Map<Character, Float>> FREQUENCIES = Map.of(
+            "en", ENGLISH_FREQUENCY,
+            "pt", PORTUGUESE_FREQUENCY
+    );
+
+    @Override
+    public List<String> languages() {
+        return List.of("en", "pt");
+    }
+
+    @Override
+    public LanguageModel load(String language) throws IOException {
+        Map<Character, Float> frequencies = FREQUENCIES.get(language);
+        if (frequencies == null) {
+            throw new IllegalArgumentException("Unknown language: " + language);
+        }
+        NgramModel ngramModel = null;
+        try (InputStream in = BuiltinLanguages.class.getResourceAsStream("/ngrams/" + language + ".ngram")) {
+            if (in != null) {
+                ngramModel = NgramModel.read(in);
+            }
+        }
+        return new LanguageModel(ScoringProfile.of(language, frequencies, 0f), ngramModel);
+    }
+}
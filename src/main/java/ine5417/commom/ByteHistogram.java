@@ -0,0 +1,35 @@
+package ine5417.commom;
+
+/**
+ * Helpers to count the occurrences of every byte value of a buffer.
+ * <p>
+ * A histogram is an {@code int[256]} indexed by the unsigned value of a byte.
+ */
+public final class ByteHistogram {
+    public static final int SIZE = 256;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private ByteHistogram() {}
+
+    /**
+     * Counts every byte of {@code data}.
+     */
+    public static int[] of(byte[] data) {
+        return of(data, 0, 1);
+    }
+
+    /**
+     * Counts the bytes of {@code data} at {@code offset}, {@code offset + stride},
+     * {@code offset + 2 * stride}, ... which is the column {@code offset} of the data laid out
+     * in rows of {@code stride} bytes.
+     */
+    public static int[] of(byte[] data, int offset, int stride) {
+        int[] histogram = new int[SIZE];
+        for (int i = offset; i < data.length; i += stride) {
+            histogram[data[i] & 0xFF]++;
+        }
+        return histogram;
+    }
+}
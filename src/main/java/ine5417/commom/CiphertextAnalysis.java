@@ -0,0 +1,162 @@
+package ine5417.commom;
+
+import ine5417.records.CiphertextStatistics;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Computes the {@link CiphertextStatistics} of a ciphertext in a few linear passes, without
+ * deciphering anything.
+ */
+public final class CiphertextAnalysis {
+    /**
+     * The longest period tested
+     */
+    public static final int MAX_PERIOD = 32;
+    /**
+     * Each column of a tested period must hold at least this many bytes for its index of coincidence to mean something
+     */
+    private static final int MIN_COLUMN_LENGTH = 8;
+    /**
+     * Relative distance within which a divisor of the best period is preferred, since every multiple
+     * of the real period is just as periodic
+     */
+    private static final double PERIOD_TOLERANCE = 0.1;
+    /**
+     * Relative margin by which the index of coincidence at a period must exceed that of the whole
+     * ciphertext; a repeating key of n random bytes divides the latter by up to n
+     */
+    private static final double PERIOD_MARGIN = 0.5;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private CiphertextAnalysis() {}
+
+    /**
+     * @param ciphertext The ciphertext to analyze.
+     * @return Its statistics.
+     */
+    public static CiphertextStatistics analyze(byte[] ciphertext) {
+        int length = ciphertext.length;
+        int[] histogram = ByteHistogram.of(ciphertext);
+
+        int letters = 0;
+        int printableAscii = 0;
+        int nonAscii = 0;
+        int[] letterCounts = new int[ScoringProfile.ALPHABET_SIZE];
+        for (int b = 0; b < ByteHistogram.SIZE; b++) {
+            int count = histogram[b];
+            if (count == 0) continue;
+            if (b >= 'a' && b <= 'z') {
+                letterCounts[b - 'a'] += count;
+                letters += count;
+            } else if (b >= 'A' && b <= 'Z') {
+                letterCounts[b - 'A'] += count;
+                letters += count;
+            }
+            if ((b >= ' ' && b < 0x7F) || b == '\t' || b == '\n' || b == '\r') {
+                printableAscii += count;
+            } else if (b >= 0x80) {
+                nonAscii += count;
+            }
+        }
+        int printable = printableAscii + (nonAscii > 0 && isUtf8(ciphertext) ? nonAscii : 0);
+
+        double byteIndex = byteIndexOfCoincidence(ciphertext, 1);
+        int period = 1;
+        double periodicIndex = byteIndex;
+        int maxPeriod = Math.min(MAX_PERIOD, length / MIN_COLUMN_LENGTH);
+        if (maxPeriod >= 2) {
+            double[] indexes = new double[maxPeriod + 1];
+            int best = 1;
+            indexes[1] = periodicIndex;
+            for (int p = 2; p <= maxPeriod; p++) {
+                indexes[p] = byteIndexOfCoincidence(ciphertext, p);
+                if (indexes[p] > indexes[best]) {
+                    best = p;
+                }
+            }
+            // The shortest divisor of the best period that is about as periodic
+            for (int p = 1; p <= best; p++) {
+                if (best % p == 0 && indexes[p] >= indexes[best] * (1 - PERIOD_TOLERANCE)) {
+                    best = p;
+                    break;
+                }
+            }
+            // Short columns have noisy indexes: a period must stand clearly above no period at all
+            if (indexes[best] >= indexes[1] * (1 + PERIOD_MARGIN)) {
+                period = best;
+                periodicIndex = indexes[best];
+            }
+        }
+
+        return new CiphertextStatistics(
+                length,
+                entropy(histogram, length),
+                indexOfCoincidence(letterCounts, letters),
+                ratio(letters, length),
+                ratio(printable, length),
+                ratio(histogram[' '], length),
+                byteIndex,
+                period,
+                periodicIndex
+        );
+    }
+
+    private static double ratio(int count, int length) {
+        return length > 0 ? (double) count / length : 0;
+    }
+
+    private static double entropy(int[] histogram, int length) {
+        double entropy = 0;
+        for (int count : histogram) {
+            if (count > 0) {
+                double p = (double) count / length;
+                entropy -= p * Math.log(p);
+            }
+        }
+        return entropy / Math.log(2);
+    }
+
+    private static double indexOfCoincidence(int[] counts, int total) {
+        if (total < 2) return 0;
+        double sum = 0;
+        for (int count : counts) {
+            sum += count * (count - 1.0);
+        }
+        return sum / (total * (total - 1.0));
+    }
+
+    /**
+     * Averages the index of coincidence of the bytes of every column of the data laid out in rows
+     * of {@code period} bytes. At the period of a repeating key each column was enciphered with a
+     * single key byte, which preserves the index of the plaintext.
+     */
+    private static double byteIndexOfCoincidence(byte[] data, int period) {
+        double sum = 0;
+        int columns = 0;
+        for (int column = 0; column < period; column++) {
+            int columnLength = (data.length - column + period - 1) / period;
+            if (columnLength < 2) continue;
+            sum += indexOfCoincidence(ByteHistogram.of(data, column, period), columnLength);
+            columns++;
+        }
+        return columns > 0 ? sum / columns : 0;
+    }
+
+    private static boolean isUtf8(byte[] data) {
+        try {
+            StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(data));
+            return true;
+        } catch (CharacterCodingException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package ine5417.commom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Languages built from a directory of plain-text corpora, one {@code <language>.txt} per language.
+ * <p>
+ * The first load of a language builds its {@link LanguageModel} from the corpus and caches it as
+ * {@code <language>.lang} in the cache directory; later loads, including after a restart, read the
+ * cache unless the corpus is newer. Listing the languages only lists the directory.
+ */
+public final class CorpusLanguageSource implements LanguageSource {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CorpusLanguageSource.class);
+
+    public static final String CORPUS_EXTENSION = ".txt";
+    public static final String CACHE_EXTENSION = ".lang";
+
+    private final Path corpora;
+    private final Path cache;
+    private final int order;
+
+    /**
+     * @param corpora The directory of the corpora.
+     * @param cache   The directory of the binary cache, created if it does not exist.
+     * @param order   The length of the n-grams of the models.
+     */
+    public CorpusLanguageSource(Path corpora, Path cache, int order) {
+        this.corpora = corpora;
+        this.cache = cache;
+        this.order = order;
+    }
+
+    @Override
+    public List<String> languages() {
+        List<String> languages = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(corpora, "*" + CORPUS_EXTENSION)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                languages.add(fileName.substring(0, fileName.length() - CORPUS_EXTENSION.length()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list the corpora of " + corpora, e);
+        }
+        languages.sort(null);
+        return languages;
+    }
+
+    @Override
+    public LanguageModel load(String language) throws IOException {
+        Path corpus = corpora.resolve(language + CORPUS_EXTENSION);
+        Path cached = cache.resolve(language + CACHE_EXTENSION);
+        if (Files.exists(cached)
+                && Files.getLastModifiedTime(cached).compareTo(Files.getLastModifiedTime(corpus)) >= 0) {
+            try (InputStream in = Files.newInputStream(cached)) {
+                LanguageModel model = LanguageModel.read(in);
+                if (model.findNgramModel().map(NgramModel::getOrder).orElse(0) == order) {
+                    return model;
+                }
+            } catch (IOException e) {
+                // Rebuilt below: the cache is only an optimization
+            }
+        }
+
+        LanguageModel model = LanguageModel.fromCorpus(language, Files.readAllBytes(corpus), order);
+        try {
+            write(model, cached);
+        } catch (IOException e) {
+            LOGGER.warn("Cannot cache the language model of {} at {}", language, cached, e);
+        }
+        return model;
+    }
+
+    /**
+     * Writes a model aside and moves it in place, so a concurrent reader never sees half a file.
+     */
+    private void write(LanguageModel model, Path cached) throws IOException {
+        Files.createDirectories(cache);
+        Path temporary = Files.createTempFile(cache, model.getLanguage(), CACHE_EXTENSION + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                model.write(out);
+            }
+            Files.move(temporary, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CorpusLanguageSource{" + corpora + '}';
+    }
+}
@@ -4,5 +4,33 @@ public final class Endpoints {
     public static final String CIPHER = "/cipher";
     public static final String DECIPHER = "/decipher";
     public static final String BRUTEFORCE = "/bruteforce";
+    public static final String IDENTIFY = "/identify";
     public static final String LIST_CIPHERS = "/list_ciphers";
+    public static final String LIST_LANGUAGES = "/list_languages";
+    public static final String STREAM_CIPHER = "/stream/cipher";
+    public static final String STREAM_DECIPHER = "/stream/decipher";
+    public static final String BATCH_CIPHER = "/batch/cipher";
+    public static final String BATCH_DECIPHER = "/batch/decipher";
+    public static final String CIPHER_BINARY = "/cipher/{cipher}";
+    public static final String DECIPHER_BINARY = "/decipher/{cipher}";
+    public static final String BRUTEFORCE_BINARY = "/bruteforce/{cipher}";
+    public static final String BRUTEFORCE_STREAM = "/bruteforce/stream";
+    public static final String BRUTEFORCE_BINARY_STREAM = "/bruteforce/{cipher}/stream";
+    public static final String BRUTEFORCE_JOBS = "/jobs/bruteforce/{cipher}";
+    public static final String JOB = "/jobs/{id}";
+
+    /**
+     * Header carrying the key of the binary endpoints
+     */
+    public static final String KEY_HEADER = "X-Cipher-Key";
+
+    /**
+     * Media type of the newline-delimited JSON batch endpoints
+     */
+    public static final String NDJSON = "application/x-ndjson";
+
+    /**
+     * Media type of the length-prefixed binary brute-force results
+     */
+    public static final String BRUTEFORCE_RESULT_BINARY = "application/x-ine5417-bruteforce";
 }
@@ -1,78 +1,193 @@
 package ine5417.commom;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
-import static java.util.Map.entry;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Thread-safe registry of the {@link LanguageModel} of every supported language.
+ * <p>
+ * Languages come from {@link LanguageSource sources}: the bundled ones (see {@link BuiltinLanguages})
+ * and any registered at startup, such as a {@link CorpusLanguageSource directory of corpora}.
+ * Registering a source only records the codes of its languages; a language is loaded the first
+ * time it is used, so registering dozens of languages costs neither startup time nor memory until
+ * the attacks need them.
+ */
 public final class Frequency {
-        public static List<String> availableLanguages = new ArrayList<>();
-        /**
-         * A map where the key is a language code and the value is the corresponding character frequency table
-         */
-        public static Map<String,Map<Byte,Float>> tables = new HashMap<>();
-
-        static {
-            // Defines the character frequency for the English language.
-            Map<Character, Float> englishFrequency = Map.ofEntries(
-                    entry('e', 12.49f), entry('t', 9.28f), entry('a', 8.04f), entry('o', 7.64f),
-                    entry('i', 7.57f), entry('n', 7.23f), entry('s', 6.51f), entry('r', 6.28f),
-                    entry('h', 5.05f), entry('l', 4.07f), entry('d', 3.82f), entry('c', 3.34f),
-                    entry('u', 2.73f), entry('m', 2.51f), entry('f', 2.40f), entry('p', 2.14f),
-                    entry('g', 1.87f), entry('w', 1.68f), entry('y', 1.66f), entry('b', 1.48f),
-                    entry('v', 1.05f), entry('k', 0.54f), entry('x', 0.23f), entry('j', 0.16f),
-                    entry('q', 0.12f), entry('z', 0.09f), entry(' ', 5.0f)
-            );
-
-            // Defines the character frequency for the Portuguese language.
-            Map<Character, Float> portugueseFrequency = Map.ofEntries(
-                    entry('a', 14.63f), entry('e', 12.57f), entry('o', 10.73f), entry('s', 7.81f),
-                    entry('r', 6.53f), entry('i', 6.18f), entry('n', 5.05f), entry('d', 4.99f),
-                    entry('m', 4.74f), entry('u', 4.63f), entry('t', 4.34f), entry('c', 3.88f),
-                    entry('l', 2.78f), entry('p', 2.52f), entry('q', 1.20f), entry('v', 1.58f),
-                    entry('g', 1.30f), entry('h', 1.28f), entry('b', 1.04f), entry('f', 1.02f),
-                    entry('z', 0.47f), entry('j', 0.40f), entry('x', 0.21f), entry('k', 0.02f),
-                    entry('w', 0.01f), entry('y', 0.01f), entry(' ', 15.0f)
-            );
-
-            // Populates the public tables and list of available languages.
-            tables.put("en", Frequency.convert(englishFrequency));
-            tables.put("pt", Frequency.convert(portugueseFrequency));
-
-            availableLanguages.add("en");
-            availableLanguages.add("pt");
+    /**
+     * Language codes in registration order
+     */
+    private static final List<String> LANGUAGES = new CopyOnWriteArrayList<>();
+    /**
+     * A map where the key is a language code and the value is the source that loads it
+     */
+    private static final Map<String, LanguageSource> SOURCES = new ConcurrentHashMap<>();
+    /**
+     * A map where the key is a language code and the value is the corresponding loaded model
+     */
+    private static final Map<String, LanguageModel> MODELS = new ConcurrentHashMap<>();
+
+    static {
+        register(new BuiltinLanguages());
+    }
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private Frequency() {}
+
+    /**
+     * Registers the languages of a source, replacing the languages of the same code. Nothing is
+     * loaded until a language is used.
+     *
+     * @param source The source of the languages.
+     */
+    public static synchronized void register(LanguageSource source) {
+        for (String language : source.languages()) {
+            SOURCES.put(language, source);
+            MODELS.remove(language);
+            if (!LANGUAGES.contains(language)) {
+                LANGUAGES.add(language);
+            }
         }
+    }
 
-        /**
-         * Private constructor to prevent instantiation of this utility class.
-         */
-        private Frequency() {}
-
-        /**
-         * Private helper method to convert a frequency map from Character keys to Byte keys.
-         * <p>
-         * Note: This conversion only maps the direct byte value of the provided characters.
-         *
-         * @param map The source map with Character keys.
-         * @return A new map with Byte keys.
-         */
-        private static Map<Byte, Float> convert(Map<Character, Float> map){
-            return map.entrySet().stream()
-                    .flatMap(e -> {
-                        char c = e.getKey();
-                        float freq = e.getValue();
-                        if (Character.isLetter(c)) {
-                            return Stream.of(
-                                    Map.entry((byte) Character.toLowerCase(c), freq),
-                                    Map.entry((byte) Character.toUpperCase(c), freq)
-                            );
-                        }
-                        return Stream.of(Map.entry((byte) c, freq));
-                    })
-                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    /**
+     * Registers (or replaces) the model of a language.
+     *
+     * @param model The model to register, identified by its language code.
+     */
+    public static synchronized void register(LanguageModel model) {
+        MODELS.put(model.getLanguage(), model);
+        if (!LANGUAGES.contains(model.getLanguage())) {
+            LANGUAGES.add(model.getLanguage());
         }
-}
\ No newline at end of file
+    }
+
+    /**
+     * Registers (or replaces) the profile of a language, keeping its n-gram model.
+     *
+     * @param profile The profile to register, identified by its language code.
+     */
+    public static synchronized void register(ScoringProfile profile) {
+        Optional<LanguageModel> current = findModel(profile.getLanguage());
+        register(current.map(model -> model.withProfile(profile)).orElseGet(() -> new LanguageModel(profile, null)));
+    }
+
+    /**
+     * Registers (or replaces) the n-gram model of a registered language.
+     *
+     * @param ngramModel The model to register, identified by its language code.
+     * @throws IllegalArgumentException If the language is not registered.
+     */
+    public static synchronized void register(NgramModel ngramModel) {
+        register(getModel(ngramModel.getLanguage()).withNgramModel(ngramModel));
+    }
+
+    /**
+     * @return An immutable snapshot of the registered language codes, in registration order,
+     * without loading any language.
+     */
+    public static List<String> getAvailableLanguages() {
+        return List.copyOf(LANGUAGES);
+    }
+
+    /**
+     * @param language The language code (e.g., "en").
+     * @return Whether the language is registered, without loading it.
+     */
+    public static boolean isAvailable(String language) {
+        return MODELS.containsKey(language) || SOURCES.containsKey(language);
+    }
+
+    /**
+     * @return An immutable snapshot of the profiles of every registered language, in registration
+     * order. Loads the languages that were not used yet.
+     */
+    public static List<ScoringProfile> getProfiles() {
+        return getProfiles(LANGUAGES);
+    }
+
+    /**
+     * @param languages Registered language codes.
+     * @return The profiles of the languages, in the same order.
+     * @throws IllegalArgumentException If a language is not registered.
+     */
+    public static List<ScoringProfile> getProfiles(Collection<String> languages) {
+        return languages.stream().map(Frequency::getProfile).toList();
+    }
+
+    /**
+     * Retrieves the model of a language, loading it on first use.
+     *
+     * @param language The language code (e.g., "en").
+     * @return The model of the language, if it is registered.
+     * @throws UncheckedIOException If the language cannot be loaded.
+     */
+    public static Optional<LanguageModel> findModel(String language) {
+        LanguageModel model = MODELS.get(language);
+        if (model != null) {
+            return Optional.of(model);
+        }
+        LanguageSource source = SOURCES.get(language);
+        if (source == null) {
+            return Optional.empty();
+        }
+        return Optional.of(MODELS.computeIfAbsent(language, l -> load(source, l)));
+    }
+
+    private static LanguageModel load(LanguageSource source, String language) {
+        try {
+            return source.load(language);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load the language " + language + " from " + source, e);
+        }
+    }
+
+    /**
+     * Retrieves the model of a registered language, loading it on first use.
+     *
+     * @param language The language code (e.g., "en").
+     * @return The model of the language.
+     * @throws IllegalArgumentException If the language is not registered.
+     */
+    public static LanguageModel getModel(String language) {
+        return findModel(language).orElseThrow(() -> new IllegalArgumentException("Unknown language: " + language));
+    }
+
+    /**
+     * Retrieves the profile of a language.
+     *
+     * @param language The language code (e.g., "en").
+     * @return The profile of the language, if it is registered.
+     */
+    public static Optional<ScoringProfile> findProfile(String language) {
+        return findModel(language).map(LanguageModel::getProfile);
+    }
+
+    /**
+     * Retrieves the profile of a registered language.
+     *
+     * @param language The language code (e.g., "en").
+     * @return The profile of the language.
+     * @throws IllegalArgumentException If the language is not registered.
+     */
+    public static ScoringProfile getProfile(String language) {
+        return getModel(language).getProfile();
+    }
+
+    /**
+     * Retrieves the n-gram model of a language.
+     *
+     * @param language The language code (e.g., "en").
+     * @return The n-gram model of the language, if it has one.
+     */
+    public static Optional<NgramModel> findNgramModel(String language) {
+        return findModel(language).flatMap(LanguageModel::findNgramModel);
+    }
+}
@@ -0,0 +1,120 @@
+package ine5417.commom;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Optional;
+
+/**
+ * Everything the attacks know about a language: its {@link ScoringProfile} and, if it has one, its
+ * {@link NgramModel}.
+ * <p>
+ * Models built from a corpus are cached in a compact binary format, all integers big-endian:
+ * {@code u32 magic ("LANG"), u8 version, profile (see ScoringProfile#writeTo), u8 has n-gram model,
+ * n-gram model (see NgramModel#writeTo)}.
+ */
+public final class LanguageModel {
+    static final int MAGIC = 0x4C414E47;
+    static final int VERSION = 1;
+
+    private final ScoringProfile profile;
+    private final NgramModel ngramModel;
+
+    /**
+     * @param profile    The letter frequency profile of the language.
+     * @param ngramModel The n-gram model of the language, or null if it has none.
+     */
+    public LanguageModel(ScoringProfile profile, NgramModel ngramModel) {
+        if (ngramModel != null && !ngramModel.getLanguage().equals(profile.getLanguage())) {
+            throw new IllegalArgumentException("The profile and n-gram model of a language must have the same code");
+        }
+        this.profile = profile;
+        this.ngramModel = ngramModel;
+    }
+
+    /**
+     * Builds the model of a language from a sample text.
+     *
+     * @param language The language code (e.g., "en").
+     * @param corpus   The sample text.
+     * @param order    The length of the n-grams of the model.
+     * @return A new model.
+     */
+    public static LanguageModel fromCorpus(String language, byte[] corpus, int order) {
+        return new LanguageModel(
+                ScoringProfile.fromCorpus(language, corpus),
+                new NgramModelBuilder(language, order).add(corpus).build()
+        );
+    }
+
+    /**
+     * Reads a model in the binary format.
+     *
+     * @throws IOException If the stream cannot be read or is not a valid model.
+     */
+    public static LanguageModel read(InputStream in) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(in));
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not a language model");
+        }
+        int version = input.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported language model version " + version);
+        }
+        ScoringProfile profile = ScoringProfile.readFrom(input);
+        NgramModel ngramModel = input.readBoolean() ? NgramModel.readFrom(input) : null;
+        return new LanguageModel(profile, ngramModel);
+    }
+
+    /**
+     * Writes this model in the binary format.
+     *
+     * @throws IOException If the stream cannot be written.
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out));
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        profile.writeTo(output);
+        output.writeBoolean(ngramModel != null);
+        if (ngramModel != null) {
+            ngramModel.writeTo(output);
+        }
+        output.flush();
+    }
+
+    public String getLanguage() {
+        return profile.getLanguage();
+    }
+
+    public ScoringProfile getProfile() {
+        return profile;
+    }
+
+    public Optional<NgramModel> findNgramModel() {
+        return Optional.ofNullable(ngramModel);
+    }
+
+    /**
+     * Returns a copy of this model with another profile.
+     */
+    public LanguageModel withProfile(ScoringProfile profile) {
+        return new LanguageModel(profile, ngramModel);
+    }
+
+    /**
+     * Returns a copy of this model with another n-gram model.
+     */
+    public LanguageModel withNgramModel(NgramModel ngramModel) {
+        return new LanguageModel(profile, ngramModel);
+    }
+
+    @Override
+    public String toString() {
+        return "LanguageModel{" + getLanguage() + ", ngrams=" + (ngramModel != null) + '}';
+    }
+}
@@ -0,0 +1,26 @@
+package ine5417.commom;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A provider of languages, registered in {@link Frequency#register(LanguageSource)}.
+ * <p>
+ * Listing the languages must be cheap: a language is only loaded the first time an attack scores
+ * with it.
+ */
+public interface LanguageSource {
+    /**
+     * @return The codes of the languages of this source (e.g., "en").
+     */
+    List<String> languages();
+
+    /**
+     * Loads a language of this source.
+     *
+     * @param language One of the {@link #languages()}.
+     * @return The model of the language.
+     * @throws IOException If the language cannot be loaded.
+     */
+    LanguageModel load(String language) throws IOException;
+}
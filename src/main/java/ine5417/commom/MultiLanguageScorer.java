@@ -0,0 +1,284 @@
+package ine5417.commom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Scores a candidate plaintext, or its histogram, for several languages in a single pass.
+ * <p>
+ * The tables of the languages are packed with the language varying fastest: the score of byte
+ * {@code b} in language {@code l} is at {@code b * size() + l}, and likewise for the letter
+ * frequencies and the n-gram log-probabilities. Each byte of the input is then read once and
+ * feeds every language from adjacent memory, so adding a language only adds to the innermost
+ * loop of the scoring, not to the rest of the attack.
+ * <p>
+ * The packed n-gram tables are shared by every scorer of the same models.
+ */
+public final class MultiLanguageScorer {
+    /** Packed n-gram tables by the models they pack, in order; small, since requests pick few subsets */
+    private static final Map<List<NgramModel>, PackedNgrams> PACKED_NGRAMS = new ConcurrentHashMap<>();
+    private static final int MAX_PACKED_NGRAMS = 32;
+
+    private final List<ScoringProfile> profiles;
+    private final int size;
+    /** byteScores[b * size + l]: score of byte b in language l */
+    private final float[] byteScores;
+    /** letterFrequencies[j * size + l]: frequency, in percent, of the j-th letter in language l */
+    private final float[] letterFrequencies;
+    /** N-gram models of the languages, null where a language has none */
+    private final NgramModel[] ngramModels;
+    /** The packed tables of the n-gram models of the same order as the first one, if any */
+    private final PackedNgrams ngrams;
+
+    private MultiLanguageScorer(List<ScoringProfile> profiles) {
+        this.profiles = List.copyOf(profiles);
+        this.size = profiles.size();
+        this.byteScores = new float[256 * size];
+        this.letterFrequencies = new float[ScoringProfile.ALPHABET_SIZE * size];
+        this.ngramModels = new NgramModel[size];
+        for (int l = 0; l < size; l++) {
+            ScoringProfile profile = profiles.get(l);
+            for (int b = 0; b < 256; b++) {
+                byteScores[b * size + l] = profile.score((byte) b);
+            }
+            for (int j = 0; j < ScoringProfile.ALPHABET_SIZE; j++) {
+                letterFrequencies[j * size + l] = profile.letterFrequency(j);
+            }
+            ngramModels[l] = Frequency.findNgramModel(profile.getLanguage()).orElse(null);
+        }
+        this.ngrams = packNgrams(ngramModels);
+    }
+
+    /**
+     * @param profiles The profiles of the languages, in the order of the scores.
+     * @return A scorer of the languages.
+     */
+    public static MultiLanguageScorer of(List<ScoringProfile> profiles) {
+        return new MultiLanguageScorer(profiles);
+    }
+
+    /**
+     * @return The number of languages.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The profile of the {@code index}-th language.
+     */
+    public ScoringProfile profile(int index) {
+        return profiles.get(index);
+    }
+
+    /**
+     * @return The code of the {@code index}-th language.
+     */
+    public String language(int index) {
+        return profiles.get(index).getLanguage();
+    }
+
+    /**
+     * Scores, for every language and without materializing it, the plaintext obtained by XOR-ing
+     * every byte counted in {@code histogram} with {@code key}: the same scores
+     * {@link ScoringProfile#score(byte[])} gives to the deciphered plaintext.
+     *
+     * @param scores Receives the score of each language.
+     */
+    public void scoreXor(int[] histogram, int key, float[] scores) {
+        final float[] table = byteScores;
+        final int n = size;
+        Arrays.fill(scores, 0, n, 0f);
+        for (int b = 0; b < 256; b++) {
+            int count = histogram[b];
+            if (count == 0) continue;
+            int base = ((b ^ key) & 0xFF) * n;
+            for (int l = 0; l < n; l++) {
+                scores[l] += count * table[base + l];
+            }
+        }
+    }
+
+    /**
+     * Scores, for every language, the plaintext obtained by rotating every ASCII letter counted in
+     * {@code histogram} by {@code shift} positions (see {@link ScoringProfile#scoreLetterRotation(int[], int)}).
+     *
+     * @param scores Receives the score of each language.
+     */
+    public void scoreLetterRotation(int[] histogram, int shift, float[] scores) {
+        final float[] table = byteScores;
+        final int n = size;
+        Arrays.fill(scores, 0, n, 0f);
+        for (int b = 0; b < 256; b++) {
+            int count = histogram[b];
+            if (count == 0) continue;
+            int mapped = b;
+            if (b >= 'a' && b <= 'z') {
+                mapped = 'a' + (b - 'a' + shift) % ScoringProfile.ALPHABET_SIZE;
+            } else if (b >= 'A' && b <= 'Z') {
+                mapped = 'A' + (b - 'A' + shift) % ScoringProfile.ALPHABET_SIZE;
+            }
+            int base = mapped * n;
+            for (int l = 0; l < n; l++) {
+                scores[l] += count * table[base + l];
+            }
+        }
+    }
+
+    /**
+     * Computes, for every language, the chi-squared statistic of rotated letter counts (see
+     * {@link ScoringProfile#chiSquared(int[], int, int)}).
+     *
+     * @param statistics Receives the statistic of each language.
+     */
+    public void chiSquared(int[] letterCounts, int letterTotal, int shift, double[] statistics) {
+        final int n = size;
+        if (letterTotal == 0) {
+            Arrays.fill(statistics, 0, n, Double.POSITIVE_INFINITY);
+            return;
+        }
+        final float[] frequencies = letterFrequencies;
+        Arrays.fill(statistics, 0, n, 0.0);
+        for (int j = 0; j < ScoringProfile.ALPHABET_SIZE; j++) {
+            int observed = letterCounts[(j + shift) % ScoringProfile.ALPHABET_SIZE];
+            int base = j * n;
+            for (int l = 0; l < n; l++) {
+                double expectedCount = (letterTotal * frequencies[base + l]) / 100.0;
+                if (expectedCount > 0) {
+                    double difference = observed - expectedCount;
+                    statistics[l] += difference * difference / expectedCount;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Whether the {@code index}-th language has an n-gram model.
+     */
+    public boolean hasNgramModel(int index) {
+        return ngramModels[index] != null;
+    }
+
+    /**
+     * Scores a deciphered candidate for every language: the average log10-probability of a byte
+     * under the n-gram model of the language or, for a language without one, the sum of its byte
+     * scores. The languages whose models share an order are scored in one pass.
+     *
+     * @return The score of each language.
+     */
+    public float[] scoreText(byte[] plaintext) {
+        float[] scores = new float[size];
+        boolean[] scored = new boolean[size];
+        if (ngrams != null && plaintext.length > 0) {
+            ngrams.score(plaintext, scores, scored);
+        }
+        for (int l = 0; l < size; l++) {
+            if (scored[l]) continue;
+            NgramModel model = ngramModels[l];
+            scores[l] = model != null ? model.scorePerByte(plaintext) : profiles.get(l).score(plaintext);
+        }
+        return scores;
+    }
+
+    private static PackedNgrams packNgrams(NgramModel[] models) {
+        int order = 0;
+        List<NgramModel> packed = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        for (int l = 0; l < models.length; l++) {
+            NgramModel model = models[l];
+            if (model == null || (order != 0 && model.getOrder() != order)) continue;
+            order = model.getOrder();
+            packed.add(model);
+            indexes.add(l);
+        }
+        if (packed.isEmpty()) {
+            return null;
+        }
+        PackedNgrams tables = PACKED_NGRAMS.get(packed);
+        if (tables == null) {
+            if (PACKED_NGRAMS.size() >= MAX_PACKED_NGRAMS) {
+                PACKED_NGRAMS.clear();
+            }
+            tables = PACKED_NGRAMS.computeIfAbsent(List.copyOf(packed), PackedNgrams::new);
+        }
+        return tables.forLanguages(indexes.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * The n-gram tables of models of the same order, packed with the model varying fastest.
+     */
+    private static final class PackedNgrams {
+        final int models;
+        final float[] table;
+        final float[] invalidLogProbabilities;
+        final int contextMask;
+        final int startContext;
+        /** Index, in the scorer, of the language of each packed model */
+        final int[] languages;
+
+        PackedNgrams(List<NgramModel> packed) {
+            NgramModel first = packed.get(0);
+            this.models = packed.size();
+            int entries = 1 << (NgramModel.SYMBOL_BITS * first.getOrder());
+            this.table = new float[entries * models];
+            this.invalidLogProbabilities = new float[models];
+            for (int m = 0; m < models; m++) {
+                NgramModel model = packed.get(m);
+                for (int index = 0; index < entries; index++) {
+                    table[index * models + m] = model.logProbability(index);
+                }
+                invalidLogProbabilities[m] = model.getInvalidLogProbability();
+            }
+            this.contextMask = first.contextMask();
+            this.startContext = first.startContext();
+            this.languages = null;
+        }
+
+        private PackedNgrams(PackedNgrams shared, int[] languages) {
+            this.models = shared.models;
+            this.table = shared.table;
+            this.invalidLogProbabilities = shared.invalidLogProbabilities;
+            this.contextMask = shared.contextMask;
+            this.startContext = shared.startContext;
+            this.languages = languages;
+        }
+
+        PackedNgrams forLanguages(int[] languages) {
+            return new PackedNgrams(this, languages);
+        }
+
+        /**
+         * Scores the text for every packed model in one pass, as averages per byte.
+         */
+        void score(byte[] text, float[] scores, boolean[] scored) {
+            final float[] logProbabilities = table;
+            final int n = models;
+            final int mask = contextMask;
+            float[] sums = new float[n];
+            int context = startContext;
+            for (byte b : text) {
+                int symbol = NgramModel.symbol(b);
+                if (symbol < 0) {
+                    for (int m = 0; m < n; m++) {
+                        sums[m] += invalidLogProbabilities[m];
+                    }
+                    context = startContext;
+                    continue;
+                }
+                int index = (context << NgramModel.SYMBOL_BITS) | symbol;
+                int base = index * n;
+                for (int m = 0; m < n; m++) {
+                    sums[m] += logProbabilities[base + m];
+                }
+                context = index & mask;
+            }
+            for (int m = 0; m < n; m++) {
+                scores[languages[m]] = sums[m] / text.length;
+                scored[languages[m]] = true;
+            }
+        }
+    }
+}
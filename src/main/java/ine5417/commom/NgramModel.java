@@ -0,0 +1,263 @@
+package ine5417.commom;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Immutable character n-gram model of a single language, scoring a text by its log-probability.
+ * <p>
+ * Bytes are folded into {@link #SYMBOLS} symbols: the 26 case-folded ASCII letters, whitespace,
+ * other printable ASCII, and any non-ASCII byte (e.g., half of a UTF-8 accented letter). Control
+ * bytes are not language at all: they score {@link #getInvalidLogProbability()} and reset the
+ * context. Each symbol takes {@link #SYMBOL_BITS} bits of a table index, so the index of an n-gram
+ * is the previous index shifted by a symbol and masked, and scoring is a single table lookup per
+ * byte.
+ * <p>
+ * Models are built by {@link NgramModelBuilder} and stored in a compact binary format, all
+ * integers big-endian:
+ * {@code u32 magic ("NGRM"), u8 version, u8 order, u8 symbols, UTF language, f32 invalid log-probability,
+ * s16[symbols^order] log10-probabilities in thousandths}, the last symbol of an n-gram varying fastest.
+ */
+public final class NgramModel {
+    public static final int SYMBOLS = 29;
+    public static final int SPACE = 26;
+    public static final int PUNCTUATION = 27;
+    public static final int NON_ASCII = 28;
+    public static final int INVALID = -1;
+    public static final int SYMBOL_BITS = 5;
+    public static final int MAX_ORDER = 4;
+
+    static final int MAGIC = 0x4E47524D;
+    static final int VERSION = 1;
+    /** Log10-probabilities are stored as multiples of this quantum */
+    static final float QUANTUM = 1e-3f;
+
+    /** Symbol of every byte value */
+    private static final byte[] SYMBOL_OF = new byte[256];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            int symbol;
+            if (b >= 'a' && b <= 'z') {
+                symbol = b - 'a';
+            } else if (b >= 'A' && b <= 'Z') {
+                symbol = b - 'A';
+            } else if (b == ' ' || b == '\t' || b == '\n' || b == '\r') {
+                symbol = SPACE;
+            } else if (b > ' ' && b < 0x7F) {
+                symbol = PUNCTUATION;
+            } else if (b >= 0x80) {
+                symbol = NON_ASCII;
+            } else {
+                symbol = INVALID;
+            }
+            SYMBOL_OF[b] = (byte) symbol;
+        }
+    }
+
+    private final String language;
+    private final int order;
+    private final float invalidLogProbability;
+    /** Log10-probability of every n-gram, indexed by {@link #SYMBOL_BITS} bits per symbol */
+    private final float[] table;
+    /** Mask keeping the last {@code order - 1} symbols of an index */
+    private final int contextMask;
+    /** Context of the beginning of a text, as if it followed whitespace */
+    private final int startContext;
+
+    NgramModel(String language, int order, short[] quantized, float invalidLogProbability) {
+        if (order < 1 || order > MAX_ORDER) {
+            throw new IllegalArgumentException("Invalid n-gram order: " + order);
+        }
+        if (quantized.length != pow(SYMBOLS, order)) {
+            throw new IllegalArgumentException("Invalid n-gram table size: " + quantized.length);
+        }
+        this.language = language;
+        this.order = order;
+        this.invalidLogProbability = invalidLogProbability;
+        this.table = new float[1 << (SYMBOL_BITS * order)];
+        for (int dense = 0; dense < quantized.length; dense++) {
+            table[strided(dense, order)] = quantized[dense] * QUANTUM;
+        }
+        this.contextMask = (1 << (SYMBOL_BITS * (order - 1))) - 1;
+        int context = 0;
+        for (int i = 1; i < order; i++) {
+            context = (context << SYMBOL_BITS) | SPACE;
+        }
+        this.startContext = context;
+    }
+
+    /**
+     * @param b A byte value.
+     * @return The symbol of the byte, or {@link #INVALID} for control bytes.
+     */
+    public static int symbol(byte b) {
+        return SYMBOL_OF[b & 0xFF];
+    }
+
+    /**
+     * Reads a model in the binary format.
+     *
+     * @throws IOException If the stream cannot be read or is not a valid model.
+     */
+    public static NgramModel read(InputStream in) throws IOException {
+        return readFrom(new DataInputStream(new BufferedInputStream(in)));
+    }
+
+    /**
+     * Reads a model in the binary format, e.g., embedded in a larger file.
+     *
+     * @throws IOException If the input cannot be read or is not a valid model.
+     */
+    static NgramModel readFrom(DataInput input) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not an n-gram model");
+        }
+        int version = input.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported n-gram model version " + version);
+        }
+        int order = input.readUnsignedByte();
+        int symbols = input.readUnsignedByte();
+        if (symbols != SYMBOLS || order < 1 || order > MAX_ORDER) {
+            throw new IOException("Unsupported n-gram model: order " + order + ", " + symbols + " symbols");
+        }
+        String language = input.readUTF();
+        float invalidLogProbability = input.readFloat();
+        short[] quantized = new short[pow(SYMBOLS, order)];
+        for (int i = 0; i < quantized.length; i++) {
+            quantized[i] = input.readShort();
+        }
+        return new NgramModel(language, order, quantized, invalidLogProbability);
+    }
+
+    /**
+     * Writes this model in the binary format.
+     *
+     * @throws IOException If the stream cannot be written.
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out));
+        writeTo(output);
+        output.flush();
+    }
+
+    /**
+     * Writes this model in the binary format, e.g., embedded in a larger file.
+     *
+     * @throws IOException If the output cannot be written.
+     */
+    void writeTo(DataOutput output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        output.writeByte(order);
+        output.writeByte(SYMBOLS);
+        output.writeUTF(language);
+        output.writeFloat(invalidLogProbability);
+        for (int dense = 0, size = pow(SYMBOLS, order); dense < size; dense++) {
+            output.writeShort(Math.round(table[strided(dense, order)] / QUANTUM));
+        }
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    /**
+     * @return The log10-probability of a control byte.
+     */
+    public float getInvalidLogProbability() {
+        return invalidLogProbability;
+    }
+
+    /**
+     * @return The log10-probability of a text (higher is closer to the language).
+     */
+    public float score(byte[] text) {
+        return score(text, 0, text.length);
+    }
+
+    /**
+     * @return The log10-probability of {@code length} bytes of a text starting at {@code offset}.
+     */
+    public float score(byte[] text, int offset, int length) {
+        final float[] logProbabilities = table;
+        final byte[] symbols = SYMBOL_OF;
+        final int mask = contextMask;
+        int context = startContext;
+        float score = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int symbol = symbols[text[i] & 0xFF];
+            if (symbol < 0) {
+                score += invalidLogProbability;
+                context = startContext;
+                continue;
+            }
+            int index = (context << SYMBOL_BITS) | symbol;
+            score += logProbabilities[index];
+            context = index & mask;
+        }
+        return score;
+    }
+
+    /**
+     * @return The average log10-probability of a byte of the text, which compares texts of
+     * different lengths, or negative infinity if the text is empty.
+     */
+    public float scorePerByte(byte[] text) {
+        if (text.length == 0) return Float.NEGATIVE_INFINITY;
+        return score(text) / text.length;
+    }
+
+    /**
+     * @return The log10-probability of the n-gram at {@code index} of the strided table.
+     */
+    float logProbability(int index) {
+        return table[index];
+    }
+
+    int contextMask() {
+        return contextMask;
+    }
+
+    int startContext() {
+        return startContext;
+    }
+
+    /**
+     * Converts an index of the dense table ({@link #SYMBOLS} values per symbol) to the index of
+     * the same n-gram in the strided table ({@link #SYMBOL_BITS} bits per symbol).
+     */
+    static int strided(int dense, int order) {
+        int index = 0;
+        for (int i = 0, shift = 0; i < order; i++, shift += SYMBOL_BITS) {
+            index |= (dense % SYMBOLS) << shift;
+            dense /= SYMBOLS;
+        }
+        return index;
+    }
+
+    static int pow(int base, int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= base;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "NgramModel{" + language + ", order=" + order + '}';
+    }
+}
@@ -0,0 +1,125 @@
+package ine5417.commom;
+
+import java.util.Arrays;
+
+/**
+ * Trains a {@link NgramModel} from sample texts of a language.
+ * <p>
+ * Probabilities are Witten-Bell interpolated: the estimate of an n-gram is mixed with that of its
+ * (n-1)-gram suffix in proportion to how many distinct symbols were seen after its context, down
+ * to add-one smoothed symbol frequencies. Every n-gram thus has a probability, even in a small
+ * corpus, and unseen ones are ranked by their shorter suffixes.
+ * <p>
+ * The bundled models are generated from the corpora in {@code src/ngrams} by the build-only
+ * {@code ine5417.ngrams.NgramModelGenerator}, with {@code mvn -Pngrams compile exec:java}; the
+ * models of corpora configured at runtime are built in {@link LanguageModel#fromCorpus}.
+ */
+public final class NgramModelBuilder {
+    public static final int DEFAULT_ORDER = 3;
+    /** Log10-probability of a control byte, well below that of any n-gram */
+    public static final float DEFAULT_INVALID_LOG_PROBABILITY = -6f;
+
+    private final String language;
+    private final int order;
+    /** counts[k - 1][index]: occurrences of every k-gram, for k from 1 to the order */
+    private final long[][] counts;
+
+    /**
+     * @param language The language code of the model (e.g., "en").
+     * @param order    The length of the n-grams, between 1 and {@link NgramModel#MAX_ORDER}.
+     */
+    public NgramModelBuilder(String language, int order) {
+        if (order < 1 || order > NgramModel.MAX_ORDER) {
+            throw new IllegalArgumentException("Invalid n-gram order: " + order);
+        }
+        this.language = language;
+        this.order = order;
+        this.counts = new long[order][];
+        for (int k = 1; k <= order; k++) {
+            counts[k - 1] = new long[NgramModel.pow(NgramModel.SYMBOLS, k)];
+        }
+    }
+
+    /**
+     * Counts the n-grams of a sample text. The text is read as if it followed whitespace.
+     *
+     * @return This builder.
+     */
+    public NgramModelBuilder add(byte[] text) {
+        int[] history = new int[order];
+        resetHistory(history);
+        for (byte b : text) {
+            int symbol = NgramModel.symbol(b);
+            if (symbol == NgramModel.INVALID) {
+                resetHistory(history);
+                continue;
+            }
+            System.arraycopy(history, 1, history, 0, order - 1);
+            history[order - 1] = symbol;
+
+            // Every suffix of the history ending at this symbol
+            int index = 0;
+            int scale = 1;
+            for (int k = 1; k <= order; k++) {
+                index += history[order - k] * scale;
+                scale *= NgramModel.SYMBOLS;
+                counts[k - 1][index]++;
+            }
+        }
+        return this;
+    }
+
+    private static void resetHistory(int[] history) {
+        Arrays.fill(history, NgramModel.SPACE);
+    }
+
+    /**
+     * @return The model of the texts added so far.
+     */
+    public NgramModel build() {
+        final int symbols = NgramModel.SYMBOLS;
+
+        // Add-one smoothed symbol probabilities
+        double[] probabilities = new double[symbols];
+        long total = 0;
+        for (long count : counts[0]) {
+            total += count;
+        }
+        for (int s = 0; s < symbols; s++) {
+            probabilities[s] = (counts[0][s] + 1.0) / (total + symbols);
+        }
+
+        for (int k = 2; k <= order; k++) {
+            long[] kgrams = counts[k - 1];
+            int suffixes = NgramModel.pow(symbols, k - 1);
+            double[] next = new double[kgrams.length];
+            for (int context = 0; context < suffixes; context++) {
+                int base = context * symbols;
+                long contextCount = 0;
+                int continuations = 0;
+                for (int s = 0; s < symbols; s++) {
+                    contextCount += kgrams[base + s];
+                    if (kgrams[base + s] > 0) continuations++;
+                }
+                // The (k-1)-gram suffix drops the oldest symbol of the context
+                int suffixBase = (context % (suffixes / symbols)) * symbols;
+                for (int s = 0; s < symbols; s++) {
+                    double backoff = probabilities[suffixBase + s];
+                    if (contextCount == 0) {
+                        next[base + s] = backoff;
+                    } else {
+                        next[base + s] = (kgrams[base + s] + continuations * backoff) / (contextCount + continuations);
+                    }
+                }
+            }
+            probabilities = next;
+        }
+
+        short[] quantized = new short[probabilities.length];
+        for (int i = 0; i < probabilities.length; i++) {
+            long value = Math.round(Math.log10(probabilities[i]) / NgramModel.QUANTUM);
+            quantized[i] = (short) Math.max(Short.MIN_VALUE, value);
+        }
+        return new NgramModel(language, order, quantized, DEFAULT_INVALID_LOG_PROBABILITY);
+    }
+}
@@ -0,0 +1,272 @@
+package ine5417.commom;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable, array-indexed character frequency profile of a single language.
+ * <p>
+ * Scores are stored in a dense {@code float[256]} indexed by the unsigned value of a byte, so
+ * scoring a candidate plaintext is a plain array lookup per byte instead of a boxed map lookup.
+ * Bytes that are not part of the profile score {@link #getDefaultScore()}.
+ */
+public final class ScoringProfile {
+    public static final int ALPHABET_SIZE = 26;
+
+    private final String language;
+    private final float defaultScore;
+    /** Frequencies of the known bytes, only meaningful where {@link #known} is set. */
+    private final float[] frequencies;
+    private final boolean[] known;
+    /** Score of every byte value, with the default already applied to the unknown ones. */
+    private final float[] byteScores;
+    /** Frequency (in percent) of each letter, case-folded, indexed from 'a'. */
+    private final float[] letterFrequencies;
+
+    private ScoringProfile(String language, float[] frequencies, boolean[] known, float defaultScore) {
+        this.language = language;
+        this.defaultScore = defaultScore;
+        this.frequencies = frequencies;
+        this.known = known;
+        this.byteScores = new float[256];
+        for (int i = 0; i < 256; i++) {
+            byteScores[i] = known[i] ? frequencies[i] : defaultScore;
+        }
+        this.letterFrequencies = new float[ALPHABET_SIZE];
+        for (int i = 0; i < ALPHABET_SIZE; i++) {
+            int lower = 'a' + i;
+            int upper = 'A' + i;
+            letterFrequencies[i] = known[lower] ? frequencies[lower] : known[upper] ? frequencies[upper] : 0f;
+        }
+    }
+
+    /**
+     * Builds a profile from a character frequency table. Letters are registered in both cases.
+     *
+     * @param language     The language code of the profile (e.g., "en").
+     * @param frequencies  The frequency, in percent, of each character of the language.
+     * @param defaultScore The score of bytes that are not in the table.
+     * @return A new profile.
+     */
+    public static ScoringProfile of(String language, Map<Character, Float> frequencies, float defaultScore) {
+        float[] table = new float[256];
+        boolean[] known = new boolean[256];
+        for (Map.Entry<Character, Float> entry : frequencies.entrySet()) {
+            char c = entry.getKey();
+            float frequency = entry.getValue();
+            if (Character.isLetter(c)) {
+                put(table, known, Character.toLowerCase(c), frequency);
+                put(table, known, Character.toUpperCase(c), frequency);
+            } else {
+                put(table, known, c, frequency);
+            }
+        }
+        return new ScoringProfile(language, table, known, defaultScore);
+    }
+
+    /**
+     * Builds a profile from the letter and whitespace frequencies of a sample text of the language.
+     * Letters are case-folded and every whitespace byte counts as a space.
+     *
+     * @param language The language code of the profile (e.g., "en").
+     * @param corpus   The sample text.
+     * @return A new profile, in which other bytes score 0.
+     */
+    public static ScoringProfile fromCorpus(String language, byte[] corpus) {
+        long[] counts = new long[ALPHABET_SIZE + 1];
+        long total = 0;
+        for (byte b : corpus) {
+            int symbol = NgramModel.symbol(b);
+            if (symbol < ALPHABET_SIZE || symbol == NgramModel.SPACE) {
+                counts[Math.min(symbol, ALPHABET_SIZE)]++;
+                total++;
+            }
+        }
+        Map<Character, Float> frequencies = new HashMap<>();
+        for (int i = 0; i <= ALPHABET_SIZE; i++) {
+            if (counts[i] > 0) {
+                char c = i == ALPHABET_SIZE ? ' ' : (char) ('a' + i);
+                frequencies.put(c, (float) (100.0 * counts[i] / total));
+            }
+        }
+        return of(language, frequencies, 0f);
+    }
+
+    /**
+     * Reads a profile written by {@link #writeTo(DataOutput)}.
+     */
+    static ScoringProfile readFrom(DataInput input) throws IOException {
+        String language = input.readUTF();
+        float defaultScore = input.readFloat();
+        float[] table = new float[256];
+        boolean[] known = new boolean[256];
+        int count = input.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            int index = input.readUnsignedByte();
+            table[index] = input.readFloat();
+            known[index] = true;
+        }
+        return new ScoringProfile(language, table, known, defaultScore);
+    }
+
+    /**
+     * Writes this profile as {@code UTF language, f32 default score, u16 count, count * (u8 byte, f32 frequency)}.
+     */
+    void writeTo(DataOutput output) throws IOException {
+        output.writeUTF(language);
+        output.writeFloat(defaultScore);
+        int count = 0;
+        for (boolean k : known) {
+            if (k) count++;
+        }
+        output.writeShort(count);
+        for (int i = 0; i < 256; i++) {
+            if (known[i]) {
+                output.writeByte(i);
+                output.writeFloat(frequencies[i]);
+            }
+        }
+    }
+
+    private static void put(float[] table, boolean[] known, char c, float frequency) {
+        // Mirrors the historical (byte) cast: only the low byte of the character is used
+        int index = c & 0xFF;
+        table[index] = frequency;
+        known[index] = true;
+    }
+
+    /**
+     * Returns a copy of this profile in which unknown bytes score {@code defaultScore}.
+     */
+    public ScoringProfile withDefault(float defaultScore) {
+        if (Float.compare(defaultScore, this.defaultScore) == 0) {
+            return this;
+        }
+        return new ScoringProfile(language, frequencies, known, defaultScore);
+    }
+
+    /**
+     * Returns a copy of this profile in which {@code b} has the given frequency.
+     */
+    public ScoringProfile with(byte b, float frequency) {
+        float[] table = frequencies.clone();
+        boolean[] knownCopy = known.clone();
+        table[b & 0xFF] = frequency;
+        knownCopy[b & 0xFF] = true;
+        return new ScoringProfile(language, table, knownCopy, defaultScore);
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public float getDefaultScore() {
+        return defaultScore;
+    }
+
+    /**
+     * @param b A byte value.
+     * @return The score of the byte, or the default score if it is not part of the profile.
+     */
+    public float score(byte b) {
+        return byteScores[b & 0xFF];
+    }
+
+    /**
+     * Sums the score of every byte of a candidate plaintext.
+     */
+    public float score(byte[] plaintext) {
+        return score(plaintext, 0, plaintext.length);
+    }
+
+    /**
+     * Sums the score of {@code length} bytes of a candidate plaintext starting at {@code offset}.
+     */
+    public float score(byte[] plaintext, int offset, int length) {
+        final float[] scores = byteScores;
+        float score = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            score += scores[plaintext[i] & 0xFF];
+        }
+        return score;
+    }
+
+    /**
+     * Scores, without materializing it, the plaintext obtained by rotating every ASCII letter
+     * counted in {@code histogram} by {@code shift} positions in the alphabet (preserving case),
+     * leaving every other byte untouched.
+     *
+     * @param histogram The byte histogram of the ciphertext (see {@link ByteHistogram}).
+     * @param shift     The rotation, between 0 and 25.
+     * @return The same score {@link #score(byte[])} gives to the rotated plaintext.
+     */
+    public float scoreLetterRotation(int[] histogram, int shift) {
+        final float[] scores = byteScores;
+        float score = 0;
+        for (int b = 0; b < 256; b++) {
+            int count = histogram[b];
+            if (count == 0) continue;
+            int mapped = b;
+            if (b >= 'a' && b <= 'z') {
+                mapped = 'a' + (b - 'a' + shift) % ALPHABET_SIZE;
+            } else if (b >= 'A' && b <= 'Z') {
+                mapped = 'A' + (b - 'A' + shift) % ALPHABET_SIZE;
+            }
+            score += count * scores[mapped];
+        }
+        return score;
+    }
+
+    /**
+     * Computes the chi-squared statistic between observed letter counts and the letter
+     * frequencies of the language, without allocating.
+     * <p>
+     * The counts are read rotated by {@code shift}: the observed count of letter {@code j} is
+     * {@code letterCounts[(j + shift) % 26]}, which is the count of {@code j} in the text obtained
+     * by shifting every letter back by {@code shift} positions. This scores the 26 Caesar shifts of
+     * a text from a single count vector.
+     *
+     * @param letterCounts The case-folded count of each letter, indexed from 'a'.
+     * @param letterTotal  The number of letters the expected counts are based on.
+     * @param shift        The rotation of the counts, between 0 and 25.
+     * @return The chi-squared statistic (lower is closer to the language), or positive infinity
+     * if there are no letters.
+     */
+    public double chiSquared(int[] letterCounts, int letterTotal, int shift) {
+        if (letterTotal == 0) return Double.POSITIVE_INFINITY;
+
+        final float[] expectedFrequencies = letterFrequencies;
+        double chiSquared = 0.0;
+        for (int j = 0; j < ALPHABET_SIZE; j++) {
+            double expectedCount = (letterTotal * expectedFrequencies[j]) / 100.0;
+            if (expectedCount > 0) {
+                double difference = letterCounts[(j + shift) % ALPHABET_SIZE] - expectedCount;
+                chiSquared += difference * difference / expectedCount;
+            }
+        }
+        return chiSquared;
+    }
+
+    /**
+     * @param letterIndex The position of the letter in the alphabet (0 for 'a').
+     * @return The case-folded frequency of the letter, in percent.
+     */
+    public float letterFrequency(int letterIndex) {
+        return letterFrequencies[letterIndex];
+    }
+
+    /**
+     * @return A copy of the case-folded letter frequencies, in percent, indexed from 'a'.
+     */
+    public float[] letterFrequencies() {
+        return letterFrequencies.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "ScoringProfile{" + language + ", default=" + defaultScore + '}';
+    }
+}
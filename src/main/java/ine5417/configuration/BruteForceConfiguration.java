@@ -0,0 +1,31 @@
+package ine5417.configuration;
+
+import ine5417.algorithms.BruteForceExecutor;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Applies the brute-force parallelism limits from the application properties.
+ */
+@Configuration
+public class BruteForceConfiguration {
+    /**
+     * Threads shared by every brute-force attack; 0 uses one per available processor
+     */
+    @Value("${ine5417.bruteforce.max-parallelism:0}")
+    private int maxParallelism;
+
+    /**
+     * Parallelism of a request that does not ask for one; 0 uses half of the shared threads
+     */
+    @Value("${ine5417.bruteforce.default-parallelism:0}")
+    private int defaultParallelism;
+
+    @PostConstruct
+    void configureExecutor() {
+        int max = maxParallelism > 0 ? maxParallelism : Runtime.getRuntime().availableProcessors();
+        int perRequest = defaultParallelism > 0 ? defaultParallelism : Math.max(1, max / 2);
+        BruteForceExecutor.configure(max, perRequest);
+    }
+}
@@ -0,0 +1,86 @@
+package ine5417.configuration;
+
+import ine5417.commom.Endpoints;
+import ine5417.records.BruteForce;
+import ine5417.records.BruteForceResult;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a {@link BruteForceResult} in a compact length-prefixed binary form, negotiated with
+ * {@code Accept: }{@value Endpoints#BRUTEFORCE_RESULT_BINARY}. All integers are big-endian:
+ * <pre>
+ * u8 version (1), u8 cipherLength, cipher (ASCII), u32 count, then count candidates of
+ *     u8 languageLength, language (ASCII), u16 keyLength, key (UTF-8),
+ *     f32 score (IEEE 754, NaN if none), u32 resultLength, result (UTF-8)
+ * </pre>
+ * The plaintexts are written as raw bytes, without the escaping and quoting of JSON, and each
+ * candidate is encoded straight to the response stream, so only one plaintext is ever encoded
+ * in memory at a time. Write-only.
+ */
+public class BruteForceResultConverter extends AbstractHttpMessageConverter<BruteForceResult> {
+    public static final int VERSION = 1;
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(Endpoints.BRUTEFORCE_RESULT_BINARY);
+
+    public BruteForceResultConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> type) {
+        return BruteForceResult.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public boolean canRead(Class<?> type, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected BruteForceResult readInternal(Class<? extends BruteForceResult> type, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Binary brute-force results are write-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(BruteForceResult result, HttpOutputMessage outputMessage) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputMessage.getBody()));
+        output.writeByte(VERSION);
+        writeShortString(output, result.cipher());
+        output.writeInt(result.result().size());
+        for (BruteForce candidate : result.result()) {
+            writeShortString(output, candidate.language());
+            byte[] key = bytes(candidate.key());
+            if (key.length > 0xFFFF) {
+                throw new IOException("Key too long for a binary brute-force result");
+            }
+            output.writeShort(key.length);
+            output.write(key);
+            output.writeFloat(candidate.score() != null ? candidate.score() : Float.NaN);
+            byte[] plaintext = bytes(candidate.result());
+            output.writeInt(plaintext.length);
+            output.write(plaintext);
+        }
+        output.flush();
+    }
+
+    private static void writeShortString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = bytes(value);
+        if (bytes.length > 0xFF) {
+            throw new IOException("Identifier too long for a binary brute-force result: " + value);
+        }
+        output.writeByte(bytes.length);
+        output.write(bytes);
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+}
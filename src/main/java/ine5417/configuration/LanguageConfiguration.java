@@ -0,0 +1,54 @@
+package ine5417.configuration;
+
+import ine5417.commom.CorpusLanguageSource;
+import ine5417.commom.Frequency;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Registers the languages of the corpus directory from the application properties, if any, next
+ * to the bundled ones. The languages are loaded on first use, not at startup.
+ */
+@Configuration
+public class LanguageConfiguration {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LanguageConfiguration.class);
+
+    /**
+     * Directory of {@code <language>.txt} corpora; empty for the bundled languages only
+     */
+    @Value("${ine5417.languages.corpora:}")
+    private String corpora;
+
+    /**
+     * Directory of the binary models built from the corpora
+     */
+    @Value("${ine5417.languages.cache:data/languages}")
+    private Path cache;
+
+    /**
+     * Length of the n-grams of the models built from the corpora
+     */
+    @Value("${ine5417.languages.ngram-order:3}")
+    private int ngramOrder;
+
+    @PostConstruct
+    void registerCorpora() {
+        if (corpora.isBlank()) {
+            return;
+        }
+        Path directory = Path.of(corpora);
+        if (!Files.isDirectory(directory)) {
+            LOGGER.warn("Language corpora directory {} does not exist", directory);
+            return;
+        }
+        CorpusLanguageSource source = new CorpusLanguageSource(directory, cache, ngramOrder);
+        Frequency.register(source);
+        LOGGER.info("Registered languages {} from {}", source.languages(), directory);
+    }
+}
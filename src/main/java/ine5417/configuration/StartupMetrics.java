@@ -0,0 +1,70 @@
+package ine5417.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures the latency of the first request served after startup, which includes the lazy
+ * initialization that the startup time itself does not show.
+ * <p>
+ * Spring Boot already publishes the startup time as {@code application.started.time} and
+ * {@code application.ready.time}; this adds {@code application.first.request.latency} (duration
+ * of the first request) and {@code application.first.request.time} (from JVM start to the end of
+ * the first request), all available through the actuator metrics endpoint.
+ */
+@Component
+public class StartupMetrics extends OncePerRequestFilter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupMetrics.class);
+
+    private final MeterRegistry registry;
+    private final AtomicBoolean firstRequest = new AtomicBoolean(true);
+
+    public StartupMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void onReady(ApplicationReadyEvent event) {
+        LOGGER.info("Application ready in {} ms", event.getTimeTaken().toMillis());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!firstRequest.compareAndSet(true, false)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long latencyNanos = System.nanoTime() - start;
+            long sinceJvmStartMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+            TimeGauge.builder("application.first.request.latency", () -> latencyNanos, TimeUnit.NANOSECONDS)
+                    .description("Duration of the first request served after startup")
+                    .register(registry);
+            TimeGauge.builder("application.first.request.time", () -> sinceJvmStartMillis, TimeUnit.MILLISECONDS)
+                    .description("Time from the JVM start to the end of the first request")
+                    .register(registry);
+            LOGGER.info("First request {} served in {} ms, {} ms after JVM start",
+                    request.getRequestURI(), TimeUnit.NANOSECONDS.toMillis(latencyNanos), sinceJvmStartMillis);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ine5417.configuration;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the response encodings of the web layer beyond Spring's defaults.
+ */
+@Configuration
+public class WebConfiguration {
+    /**
+     * Picked up by Spring Boot next to the default converters, so JSON stays the default and the
+     * binary form is only served to clients that accept it.
+     */
+    @Bean
+    public BruteForceResultConverter bruteForceResultConverter() {
+        return new BruteForceResultConverter();
+    }
+}
@@ -0,0 +1,40 @@
+package ine5417.controllers;
+
+import ine5417.algorithms.BruteForceOptions;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.TreeSet;
+
+/**
+ * Identifies the result of a brute-force attack by content: the same cipher, result-affecting
+ * options and ciphertext always produce the same candidates. The parallelism is left out since it
+ * does not change the result.
+ *
+ * @param cipher              The lower-case identifier of the attacked cipher.
+ * @param maxKeyLength        The requested maximum key length, or 0 for the algorithm default.
+ * @param keyLengthCandidates The requested number of key length candidates, or 0 for the algorithm default.
+ * @param languages           The sorted, comma-separated codes of the languages scored.
+ * @param topK                The requested number of candidates per language, or 0 for the algorithm default.
+ * @param previewLength       The requested number of characters per plaintext, or 0 for the whole plaintext.
+ * @param hash                The hex-encoded SHA-256 of the ciphertext.
+ */
+public record AttackKey(String cipher, int maxKeyLength, int keyLengthCandidates, String languages, int topK,
+                        int previewLength, String hash) {
+
+    public static AttackKey of(String cipher, byte[] ciphertext, BruteForceOptions options) {
+        // Every language is scored independently, so their order does not change the candidates
+        String languages = String.join(",", new TreeSet<>(options.languagesOrAll()));
+        return new AttackKey(cipher.toLowerCase(), options.maxKeyLength(), options.keyLengthCandidates(),
+                languages, options.topK(), options.previewLength(), sha256(ciphertext));
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package ine5417.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import ine5417.algorithms.Algorithm;
+import ine5417.algorithms.AlgorithmMetrics;
+import ine5417.records.BatchRequest;
+import ine5417.records.BatchResult;
+import org.apache.coyote.BadRequestException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ciphers or deciphers many small messages in a single request, streaming the results back in
+ * request order while the request is still being read.
+ * <p>
+ * Every message is transformed in place by the {@link Algorithm#cipherStream(byte[]) stream
+ * transform} of its algorithm, so no output array is allocated per message, and algorithms are
+ * looked up once per batch. Two formats are supported:
+ * <ul>
+ *     <li>NDJSON: one {@link BatchRequest} per line in, one {@link BatchResult} per line out.</li>
+ *     <li>Length-prefixed binary, all integers big-endian. Each request frame is
+ *     {@code u8 cipherLength, cipher (ASCII), u16 keyLength, key, u32 payloadLength, payload};
+ *     each response frame is {@code u8 status (0 = ok, 1 = error), u32 length, bytes}, where the
+ *     bytes are the raw result or the UTF-8 error message.</li>
+ * </ul>
+ * A message that fails (e.g., unknown cipher or empty key) produces an error result and the batch
+ * goes on; a malformed stream ends the batch after an error result.
+ */
+@Service
+public class BatchController {
+    public static final int STATUS_OK = 0;
+    public static final int STATUS_ERROR = 1;
+    /**
+     * Largest payload of a binary frame
+     */
+    public static final int MAX_PAYLOAD_LENGTH = 16 * 1024 * 1024;
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchController.class);
+
+    private final CipherController cipherController;
+    private final ObjectReader requestReader;
+    private final ObjectWriter resultWriter;
+
+    public BatchController(CipherController cipherController, ObjectMapper objectMapper) {
+        this.cipherController = cipherController;
+        this.requestReader = objectMapper.readerFor(BatchRequest.class);
+        this.resultWriter = objectMapper.writerFor(BatchResult.class).withRootValueSeparator("\n");
+    }
+
+    /**
+     * Processes a NDJSON batch.
+     *
+     * @param in      The {@link BatchRequest} lines.
+     * @param out     Receives one {@link BatchResult} line per request line.
+     * @param encrypt Whether the payloads are encrypted or decrypted.
+     * @return The number of messages processed.
+     * @throws IOException If reading or writing the streams fails.
+     */
+    public long processNdjson(InputStream in, OutputStream out, boolean encrypt) throws IOException {
+        Map<String, Algorithm> algorithms = new HashMap<>();
+        long index = 0;
+        try (MappingIterator<BatchRequest> requests = requestReader.readValues(in);
+             SequenceWriter results = resultWriter.writeValues(out)) {
+            while (true) {
+                BatchRequest request;
+                try {
+                    if (!requests.hasNextValue()) break;
+                    request = requests.nextValue();
+                } catch (JsonProcessingException e) {
+                    results.write(new BatchResult(index, null, "Malformed request: " + e.getOriginalMessage()));
+                    index++;
+                    break;
+                }
+                results.write(process(request, algorithms, index, encrypt));
+                index++;
+            }
+            // The separator only goes between results; every line ends with one
+            results.flush();
+            if (index > 0) {
+                out.write('\n');
+            }
+        }
+        return index;
+    }
+
+    private BatchResult process(BatchRequest request, Map<String, Algorithm> algorithms, long index, boolean encrypt) {
+        if (request == null || request.cipher() == null || request.key() == null || request.payload() == null) {
+            return new BatchResult(index, null, "cipher, key and payload are required");
+        }
+        try {
+            Algorithm algorithm = algorithm(request.cipher(), algorithms);
+            byte[] key = requireKey(request.key().getBytes(StandardCharsets.UTF_8));
+            if (encrypt) {
+                byte[] data = request.payload().getBytes(StandardCharsets.UTF_8);
+                transform(algorithm, request.cipher(), key, data, data.length, true);
+                return new BatchResult(index, Base64.getEncoder().encodeToString(data), null);
+            }
+            byte[] data = Base64.getDecoder().decode(request.payload().replace(' ', '+'));
+            transform(algorithm, request.cipher(), key, data, data.length, false);
+            return new BatchResult(index, new String(data, StandardCharsets.UTF_8), null);
+        } catch (BadRequestException | IllegalArgumentException e) {
+            return new BatchResult(index, null, e.getMessage());
+        } catch (RuntimeException e) {
+            return new BatchResult(index, null, failure(index, e));
+        }
+    }
+
+    /**
+     * Processes a length-prefixed binary batch (see the class documentation for the format).
+     *
+     * @param in      The request frames.
+     * @param out     Receives one response frame per request frame.
+     * @param encrypt Whether the payloads are encrypted or decrypted.
+     * @return The number of messages processed.
+     * @throws IOException If reading or writing the streams fails.
+     */
+    public long processBinary(InputStream in, OutputStream out, boolean encrypt) throws IOException {
+        Map<String, Algorithm> algorithms = new HashMap<>();
+        DataInputStream input = new DataInputStream(new BufferedInputStream(in));
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out));
+        // Reused by every frame, grown as needed
+        byte[] buffer = new byte[256];
+        long count = 0;
+        try (output) {
+            int cipherLength;
+            while ((cipherLength = input.read()) >= 0) {
+                int payloadLength;
+                String cipher;
+                byte[] key;
+                try {
+                    cipher = new String(input.readNBytes(cipherLength), StandardCharsets.US_ASCII);
+                    key = input.readNBytes(input.readUnsignedShort());
+                    payloadLength = input.readInt();
+                    if (payloadLength < 0 || payloadLength > MAX_PAYLOAD_LENGTH) {
+                        writeFrame(output, STATUS_ERROR, errorBytes("Invalid payload length " + payloadLength));
+                        return count + 1;
+                    }
+                    if (buffer.length < payloadLength) {
+                        buffer = new byte[Math.max(payloadLength, buffer.length * 2)];
+                    }
+                    input.readFully(buffer, 0, payloadLength);
+                } catch (EOFException e) {
+                    writeFrame(output, STATUS_ERROR, errorBytes("Truncated frame"));
+                    return count + 1;
+                }
+                count++;
+
+                try {
+                    Algorithm algorithm = algorithm(cipher, algorithms);
+                    transform(algorithm, cipher, requireKey(key), buffer, payloadLength, encrypt);
+                } catch (BadRequestException | IllegalArgumentException e) {
+                    writeFrame(output, STATUS_ERROR, errorBytes(e.getMessage()));
+                    continue;
+                } catch (RuntimeException e) {
+                    writeFrame(output, STATUS_ERROR, errorBytes(failure(count - 1, e)));
+                    continue;
+                }
+                output.writeByte(STATUS_OK);
+                output.writeInt(payloadLength);
+                output.write(buffer, 0, payloadLength);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Transforms a message in place, recording it as a cipher or decipher operation.
+     */
+    private static void transform(Algorithm algorithm, String cipher, byte[] key, byte[] data, int length,
+                                  boolean encrypt) {
+        long start = System.nanoTime();
+        if (encrypt) {
+            algorithm.cipherStream(key).update(data, 0, length);
+        } else {
+            algorithm.decipherStream(key).update(data, 0, length);
+        }
+        CipherController.metrics(cipher).recordOperation(
+                encrypt ? AlgorithmMetrics.CIPHER : AlgorithmMetrics.DECIPHER, System.nanoTime() - start, length);
+    }
+
+    private static byte[] requireKey(byte[] key) throws BadRequestException {
+        if (key.length == 0) {
+            throw new BadRequestException("Empty key");
+        }
+        return key;
+    }
+
+    /**
+     * Logs an unexpected failure of a message, which the response reports without its details.
+     */
+    private static String failure(long index, RuntimeException e) {
+        LOGGER.warn("Batch message {} failed", index, e);
+        return "Failed to process the message";
+    }
+
+    private static void writeFrame(DataOutputStream output, int status, byte[] bytes) throws IOException {
+        output.writeByte(status);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static byte[] errorBytes(String message) {
+        return message.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Algorithm algorithm(String cipher, Map<String, Algorithm> algorithms) throws BadRequestException {
+        Algorithm algorithm = algorithms.get(cipher);
+        if (algorithm == null) {
+            algorithm = cipherController.getAlgorithm(cipher);
+            algorithms.put(cipher, algorithm);
+        }
+        return algorithm;
+    }
+}
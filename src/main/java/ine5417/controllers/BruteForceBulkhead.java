@@ -0,0 +1,88 @@
+package ine5417.controllers;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the number of synchronous brute-force requests running at once, so that slow attacks
+ * cannot take over the request threads that cipher and decipher calls also need.
+ * <p>
+ * A request that finds every permit taken waits at most {@code ine5417.bulkhead.max-wait} and is
+ * then rejected with a {@link BruteForceRejectedException}. The number of requests inside the
+ * bulkhead and the rejections are published as {@code bruteforce.bulkhead.active} and
+ * {@code bruteforce.bulkhead.rejected}.
+ */
+@Service
+public class BruteForceBulkhead {
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long maxWaitNanos;
+    private final Counter rejected;
+
+    /**
+     * @param maxConcurrent The number of brute-force requests running at once; 0 uses one per available processor.
+     * @param maxWait       How long a request waits for a permit before being rejected.
+     */
+    public BruteForceBulkhead(@Value("${ine5417.bulkhead.max-concurrent:0}") int maxConcurrent,
+                              @Value("${ine5417.bulkhead.max-wait:0ms}") Duration maxWait,
+                              MeterRegistry registry) {
+        this.maxConcurrent = maxConcurrent > 0 ? maxConcurrent : Runtime.getRuntime().availableProcessors();
+        this.maxWaitNanos = maxWait.toNanos();
+        this.permits = new Semaphore(this.maxConcurrent, true);
+
+        Gauge.builder("bruteforce.bulkhead.active", permits, p -> this.maxConcurrent - p.availablePermits())
+                .description("Brute-force requests running inside the bulkhead")
+                .register(registry);
+        this.rejected = Counter.builder("bruteforce.bulkhead.rejected")
+                .description("Brute-force requests rejected because the bulkhead was full")
+                .register(registry);
+    }
+
+    /**
+     * Runs a brute-force request inside the bulkhead.
+     *
+     * @param call The request.
+     * @return The result of the request.
+     * @throws BruteForceRejectedException If no permit became available in time.
+     */
+    public <T, E extends Exception> T execute(BulkheadCall<T, E> call) throws E {
+        acquire();
+        try {
+            return call.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void acquire() {
+        boolean acquired;
+        try {
+            acquired = maxWaitNanos > 0
+                    ? permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)
+                    : permits.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            throw new BruteForceRejectedException(
+                    "Too many bruteforce requests running (limit " + maxConcurrent + "), retry later");
+        }
+    }
+
+    /**
+     * A call that may throw a checked exception of type {@code E}.
+     */
+    @FunctionalInterface
+    public interface BulkheadCall<T, E extends Exception> {
+        T call() throws E;
+    }
+}
@@ -0,0 +1,131 @@
+package ine5417.controllers;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ine5417.records.BruteForce;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, in-memory cache of brute-force results, so that retried or polled attacks on the
+ * same ciphertext are answered without running the attack again.
+ * <p>
+ * Entries are keyed by {@link AttackKey} and weighted by their approximate size in memory: the
+ * cache evicts (W-TinyLFU) to stay within {@code ine5417.cache.max-size-bytes} and expires entries
+ * {@code ine5417.cache.ttl} after they are written. Hits, misses and evictions are published as
+ * the {@code cache.*} metrics tagged {@code cache=bruteforce}.
+ */
+@Service
+public class BruteForceCache {
+    public static final String CACHE_NAME = "bruteforce";
+
+    /** Approximate fixed cost of an entry: key, list and candidate objects */
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+    private static final int CANDIDATE_OVERHEAD_BYTES = 64;
+
+    private final Cache<AttackKey, List<BruteForce>> cache;
+    private final boolean enabled;
+    private final int topK;
+
+    /**
+     * @param enabled      Whether results are cached at all.
+     * @param maxSizeBytes The approximate memory budget of the cache.
+     * @param ttl          How long a result is kept after it is computed.
+     * @param topK         The number of best candidates kept per result, or 0 to keep them all.
+     * @param registry     The registry receiving the cache metrics.
+     */
+    public BruteForceCache(@Value("${ine5417.cache.enabled:true}") boolean enabled,
+                           @Value("${ine5417.cache.max-size-bytes:67108864}") long maxSizeBytes,
+                           @Value("${ine5417.cache.ttl:10m}") Duration ttl,
+                           @Value("${ine5417.cache.top-k:0}") int topK,
+                           MeterRegistry registry) {
+        this.enabled = enabled && maxSizeBytes > 0;
+        this.topK = Math.max(0, topK);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(Math.max(0, maxSizeBytes))
+                .weigher((AttackKey key, List<BruteForce> result) -> weigh(result))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Returns the cached result of an attack, computing and caching it if it is absent.
+     * <p>
+     * Concurrent requests for the same attack wait for a single computation. When only the
+     * top-k candidates are kept, freshly computed results are truncated the same way, so a
+     * response does not depend on whether it was cached.
+     *
+     * @param key    The attack.
+     * @param attack Runs the attack on a cache miss.
+     * @return The candidates of the attack.
+     */
+    public List<BruteForce> get(AttackKey key, Supplier<List<BruteForce>> attack) {
+        if (!enabled) {
+            return truncate(attack.get());
+        }
+        return cache.get(key, k -> truncate(attack.get()));
+    }
+
+    /**
+     * Returns the cached result of an attack that may be cancelled, computing and caching it if it
+     * is absent. Unlike {@link #get(AttackKey, Supplier)}, concurrent requests do not wait for this
+     * computation, so they are not failed if it is cancelled.
+     *
+     * @param key    The attack.
+     * @param attack Runs the attack on a cache miss.
+     * @return The candidates of the attack.
+     */
+    public List<BruteForce> getUnshared(AttackKey key, Supplier<List<BruteForce>> attack) {
+        if (!enabled) {
+            return truncate(attack.get());
+        }
+        List<BruteForce> result = cache.getIfPresent(key);
+        if (result == null) {
+            result = truncate(attack.get());
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Discards every cached result.
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    private List<BruteForce> truncate(List<BruteForce> result) {
+        if (topK == 0 || result.size() <= topK) {
+            return List.copyOf(result);
+        }
+        return result.stream()
+                .sorted(Comparator.comparing(BruteForce::score, Comparator.nullsLast(Comparator.reverseOrder())))
+                .limit(topK)
+                .toList();
+    }
+
+    private static int weigh(List<BruteForce> result) {
+        long bytes = ENTRY_OVERHEAD_BYTES;
+        for (BruteForce candidate : result) {
+            bytes += CANDIDATE_OVERHEAD_BYTES + length(candidate.language()) + length(candidate.key())
+                    + length(candidate.result());
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    /**
+     * Approximate size of a string; Latin-1 strings take a byte per character
+     */
+    private static long length(String s) {
+        return s == null ? 0 : s.length();
+    }
+}
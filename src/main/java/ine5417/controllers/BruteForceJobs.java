@@ -0,0 +1,309 @@
+package ine5417.controllers;
+
+import ine5417.algorithms.BruteForceListener;
+import ine5417.algorithms.BruteForceOptions;
+import ine5417.algorithms.CancellationToken;
+import ine5417.records.BruteForce;
+import ine5417.records.BruteForceJob;
+import ine5417.records.BruteForceJob.Status;
+import ine5417.records.BruteForceParameters;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.apache.coyote.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs brute-force attacks in the background, so that large inputs do not hold a request thread
+ * for the whole attack.
+ * <p>
+ * Jobs wait in a bounded queue for one of {@code ine5417.jobs.workers} threads; submissions beyond
+ * {@code ine5417.jobs.queue-capacity} are rejected. Every job has a deadline, counted from its
+ * submission, after which it is cancelled. Cancellation is cooperative: the algorithms check the
+ * job's {@link CancellationToken} between the pieces of the attack. Finished jobs are forgotten
+ * {@code ine5417.jobs.retention} after they finish.
+ * <p>
+ * Published metrics: {@code bruteforce.jobs.queued} and {@code bruteforce.jobs.running} (gauges),
+ * {@code bruteforce.jobs.rejected} (counter), {@code bruteforce.jobs.wait} (time spent queued) and
+ * {@code bruteforce.jobs.latency} (from submission to completion, tagged by final status).
+ */
+@Service
+public class BruteForceJobs {
+    private final CipherController cipherController;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Duration defaultDeadline;
+    private final Duration maxDeadline;
+    private final Duration retention;
+
+    private final MeterRegistry registry;
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    /**
+     * @param workers         The number of jobs running at once.
+     * @param queueCapacity   The number of jobs waiting for a worker.
+     * @param defaultDeadline The deadline of a job that does not ask for one.
+     * @param maxDeadline     The longest deadline a job may ask for.
+     * @param retention       How long a finished job can still be polled.
+     */
+    public BruteForceJobs(CipherController cipherController,
+                          MeterRegistry registry,
+                          @Value("${ine5417.jobs.workers:2}") int workers,
+                          @Value("${ine5417.jobs.queue-capacity:100}") int queueCapacity,
+                          @Value("${ine5417.jobs.deadline:5m}") Duration defaultDeadline,
+                          @Value("${ine5417.jobs.max-deadline:30m}") Duration maxDeadline,
+                          @Value("${ine5417.jobs.retention:15m}") Duration retention) {
+        this.cipherController = cipherController;
+        this.defaultDeadline = defaultDeadline;
+        this.maxDeadline = maxDeadline;
+        this.retention = retention;
+
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "bruteforce-job-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.registry = registry;
+        Gauge.builder("bruteforce.jobs.queued", executor, e -> e.getQueue().size())
+                .description("Brute-force jobs waiting for a worker")
+                .register(registry);
+        Gauge.builder("bruteforce.jobs.running", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Brute-force jobs running")
+                .register(registry);
+        this.rejected = Counter.builder("bruteforce.jobs.rejected")
+                .description("Brute-force jobs rejected because the queue was full")
+                .register(registry);
+        this.waitTimer = Timer.builder("bruteforce.jobs.wait")
+                .description("Time brute-force jobs spend queued")
+                .register(registry);
+    }
+
+    /**
+     * Queues a brute-force attack.
+     *
+     * @param ciphertext      The raw ciphertext to attack.
+     * @param cipher          The identifier of the cipher suspected to have been used.
+     * @param parameters      The optional tuning of the attack.
+     * @param deadlineSeconds The time the job may take, from now, or null for the default.
+     * @return The queued job.
+     * @throws BadRequestException     If the cipher is not found or a parameter is invalid.
+     * @throws ResponseStatusException 503 if the queue is full.
+     */
+    public BruteForceJob submit(byte[] ciphertext, String cipher, BruteForceParameters parameters,
+                                Integer deadlineSeconds) throws BadRequestException {
+        return submit(ciphertext, cipher, parameters, deadlineSeconds, BruteForceListener.NONE, job -> {});
+    }
+
+    /**
+     * Queues a brute-force attack, following its progress.
+     *
+     * @param ciphertext      The raw ciphertext to attack.
+     * @param cipher          The identifier of the cipher suspected to have been used.
+     * @param parameters      The optional tuning of the attack.
+     * @param deadlineSeconds The time the job may take, from now, or null for the default.
+     * @param listener        Receives the candidates as the attack finds them.
+     * @param onFinish        Receives the final state of the job, from the thread that finished it.
+     * @return The queued job.
+     * @throws BadRequestException     If the cipher is not found or a parameter is invalid.
+     * @throws ResponseStatusException 503 if the queue is full.
+     */
+    public BruteForceJob submit(byte[] ciphertext, String cipher, BruteForceParameters parameters,
+                                Integer deadlineSeconds, BruteForceListener listener,
+                                Consumer<BruteForceJob> onFinish) throws BadRequestException {
+        cipherController.getAlgorithm(cipher);
+        Duration deadline = defaultDeadline;
+        if (deadlineSeconds != null) {
+            if (deadlineSeconds < 1 || Duration.ofSeconds(deadlineSeconds).compareTo(maxDeadline) > 0) {
+                throw new BadRequestException("Invalid deadline");
+            }
+            deadline = Duration.ofSeconds(deadlineSeconds);
+        }
+        removeExpired();
+
+        Job job = new Job(UUID.randomUUID().toString(), cipher, deadline, onFinish);
+        BruteForceOptions options = cipherController.toOptions(parameters)
+                .withCancellation(job.token)
+                .withListener(candidate -> {
+                    job.partial.add(candidate);
+                    listener.onCandidate(candidate);
+                });
+        job.task = () -> run(job, ciphertext, options);
+
+        jobs.put(job.id, job);
+        try {
+            executor.execute(job.task);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            rejected.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many queued jobs");
+        }
+        return job.snapshot();
+    }
+
+    /**
+     * @param id The identifier of a job.
+     * @return The current state of the job, with the candidates found so far.
+     * @throws ResponseStatusException 404 if there is no such job.
+     */
+    public BruteForceJob get(String id) {
+        removeExpired();
+        return find(id).snapshot();
+    }
+
+    /**
+     * Cancels a queued or running job. A finished job is forgotten instead.
+     *
+     * @param id The identifier of a job.
+     * @return The state of the job after the cancellation.
+     * @throws ResponseStatusException 404 if there is no such job.
+     */
+    public BruteForceJob cancel(String id) {
+        Job job = find(id);
+        job.token.cancel();
+        synchronized (job) {
+            if (job.status == Status.QUEUED && executor.remove(job.task)) {
+                finish(job, Status.CANCELLED, null, "Brute-force attack cancelled");
+            } else if (job.status.isFinished()) {
+                jobs.remove(id);
+            }
+            return job.snapshot();
+        }
+    }
+
+    /**
+     * Stops a job because its caller is satisfied with the candidates found so far, which become
+     * the result of the job.
+     *
+     * @param id The identifier of a job.
+     * @throws ResponseStatusException 404 if there is no such job.
+     */
+    public void settle(String id) {
+        Job job = find(id);
+        job.settled = true;
+        job.token.cancel();
+    }
+
+    private Job find(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown job " + id);
+        }
+        return job;
+    }
+
+    private void run(Job job, byte[] ciphertext, BruteForceOptions options) {
+        synchronized (job) {
+            if (job.status != Status.QUEUED) {
+                return;
+            }
+            job.status = Status.RUNNING;
+            job.startedAt = Instant.now();
+        }
+        waitTimer.record(Duration.between(job.submittedAt, job.startedAt));
+
+        try {
+            job.token.throwIfCancelled();
+            List<BruteForce> result = cipherController.bruteforce(ciphertext, job.cipher, options).result();
+            finish(job, Status.SUCCEEDED, result, null);
+        } catch (CancellationException e) {
+            if (job.settled) {
+                List<BruteForce> found = job.partial.stream()
+                        .sorted(Comparator.comparing(BruteForce::score).reversed())
+                        .toList();
+                finish(job, Status.SETTLED, found, null);
+            } else {
+                finish(job, job.token.isCancelled() ? Status.CANCELLED : Status.EXPIRED, null, e.getMessage());
+            }
+        } catch (Exception e) {
+            finish(job, Status.FAILED, null, e.getMessage());
+        }
+    }
+
+    private void finish(Job job, Status status, List<BruteForce> result, String error) {
+        BruteForceJob finished;
+        synchronized (job) {
+            job.status = status;
+            job.finishedAt = Instant.now();
+            job.result = result;
+            job.error = error;
+            finished = job.snapshot();
+        }
+        job.onFinish.accept(finished);
+        Timer.builder("bruteforce.jobs.latency")
+                .description("Time from the submission of a brute-force job to its completion")
+                .tag("status", status.name().toLowerCase())
+                .register(registry)
+                .record(Duration.between(job.submittedAt, job.finishedAt));
+    }
+
+    private void removeExpired() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> {
+            Instant finishedAt = job.finishedAt;
+            return finishedAt != null && finishedAt.isBefore(cutoff);
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobs.values().forEach(job -> job.token.cancel());
+        executor.shutdownNow();
+    }
+
+    private static final class Job {
+        final String id;
+        final String cipher;
+        final Instant submittedAt = Instant.now();
+        final Instant deadline;
+        final CancellationToken token;
+        final List<BruteForce> partial = new CopyOnWriteArrayList<>();
+        final Consumer<BruteForceJob> onFinish;
+        Runnable task;
+        volatile boolean settled;
+
+        // Written while holding the job's lock
+        volatile Status status = Status.QUEUED;
+        volatile Instant startedAt;
+        volatile Instant finishedAt;
+        List<BruteForce> result;
+        String error;
+
+        Job(String id, String cipher, Duration deadline, Consumer<BruteForceJob> onFinish) {
+            this.id = id;
+            this.cipher = cipher;
+            this.onFinish = onFinish;
+            this.deadline = submittedAt.plus(deadline);
+            this.token = CancellationToken.withTimeout(deadline);
+        }
+
+        synchronized BruteForceJob snapshot() {
+            return new BruteForceJob(id, cipher, status, submittedAt, startedAt, finishedAt, deadline,
+                    result != null ? result : List.copyOf(partial), error);
+        }
+    }
+}
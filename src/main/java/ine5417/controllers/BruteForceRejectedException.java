@@ -0,0 +1,10 @@
+package ine5417.controllers;
+
+/**
+ * Thrown when a brute-force request is refused because too many are already running.
+ */
+public class BruteForceRejectedException extends RuntimeException {
+    public BruteForceRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,387 @@
+package ine5417.controllers;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import ine5417.records.BruteForce;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Persistent SQLite store of brute-force results, so that solved ciphertexts survive restarts.
+ * <p>
+ * Results are looked up by {@link AttackKey} before an attack runs, on a pool of
+ * {@code ine5417.store.readers} read-only connections so that lookups run concurrently alongside
+ * the writer (WAL mode). New results are queued and
+ * written in batches by a single background thread, which also owns the retention policy: rows
+ * older than {@code ine5417.store.retention} or beyond the newest {@code ine5417.store.max-entries}
+ * are deleted, and the freed pages are returned to the file system.
+ * <p>
+ * Besides the full candidate list, the best key recovered for each language is kept in the
+ * {@code solved_keys} table.
+ */
+@Service
+public class BruteForceStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BruteForceStore.class);
+    private static final Gson GSON = new Gson();
+    private static final Type RESULT_TYPE = new TypeToken<List<BruteForce>>() {}.getType();
+
+    /**
+     * Version of the schema, kept in {@code PRAGMA user_version}. Results of an older version were
+     * scored or keyed differently; they are recomputable, so they are dropped on upgrade.
+     */
+    private static final int SCHEMA_VERSION = 3;
+    private static final String[] DROP_OUTDATED = {
+            "DROP TABLE IF EXISTS bruteforce_results",
+            "DROP TABLE IF EXISTS solved_keys"
+    };
+
+    private static final String[] SCHEMA = {
+            // Must precede the creation of the tables to take effect
+            "PRAGMA auto_vacuum = INCREMENTAL",
+            "PRAGMA journal_mode = WAL",
+            """
+            CREATE TABLE IF NOT EXISTS bruteforce_results (
+                hash TEXT NOT NULL,
+                cipher TEXT NOT NULL,
+                max_key_length INTEGER NOT NULL,
+                key_length_candidates INTEGER NOT NULL,
+                languages TEXT NOT NULL,
+                top_k INTEGER NOT NULL,
+                preview_length INTEGER NOT NULL,
+                result TEXT NOT NULL,
+                created_at INTEGER NOT NULL,
+                PRIMARY KEY (hash, cipher, max_key_length, key_length_candidates, languages, top_k, preview_length)
+            )""",
+            "CREATE INDEX IF NOT EXISTS bruteforce_results_created_at ON bruteforce_results (created_at)",
+            """
+            CREATE TABLE IF NOT EXISTS solved_keys (
+                hash TEXT NOT NULL,
+                cipher TEXT NOT NULL,
+                language TEXT NOT NULL,
+                key TEXT NOT NULL,
+                score REAL,
+                created_at INTEGER NOT NULL,
+                PRIMARY KEY (hash, cipher, language)
+            )""",
+            "CREATE INDEX IF NOT EXISTS solved_keys_created_at ON solved_keys (created_at)",
+            "PRAGMA user_version = " + SCHEMA_VERSION
+    };
+
+    private static final String SELECT_RESULT = """
+            SELECT result FROM bruteforce_results
+            WHERE hash = ? AND cipher = ? AND max_key_length = ? AND key_length_candidates = ? AND languages = ?
+            AND top_k = ? AND preview_length = ?""";
+    private static final String INSERT_RESULT = """
+            INSERT OR IGNORE INTO bruteforce_results
+            (hash, cipher, max_key_length, key_length_candidates, languages, top_k, preview_length, result, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+    private static final String INSERT_KEY = """
+            INSERT OR IGNORE INTO solved_keys (hash, cipher, language, key, score, created_at)
+            VALUES (?, ?, ?, ?, ?, ?)""";
+
+    private final boolean enabled;
+    private final Duration retention;
+    private final int maxEntries;
+    private final int batchSize;
+    private final BlockingQueue<Entry> pending;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    /** Used by the writer thread only */
+    private Connection writeConnection;
+    /** Idle read-only connections, each used by one request thread at a time */
+    private BlockingQueue<Connection> readConnections;
+    private int readers;
+    private ScheduledExecutorService writer;
+
+    /**
+     * @param enabled            Whether results are persisted at all.
+     * @param path               The SQLite database file, created if it does not exist.
+     * @param retention          How long a result is kept.
+     * @param maxEntries         The maximum number of results kept, or 0 for no limit; the oldest are deleted first.
+     * @param batchSize          The number of results written per transaction.
+     * @param queueCapacity      The number of results waiting to be written; further results are dropped.
+     * @param flushInterval      How often queued results are written when the batch is not full.
+     * @param compactionInterval How often the retention policy is applied.
+     * @param readers            The number of read-only connections, i.e., of lookups running at once.
+     */
+    public BruteForceStore(@Value("${ine5417.store.enabled:true}") boolean enabled,
+                           @Value("${ine5417.store.path:data/ine5417.db}") Path path,
+                           @Value("${ine5417.store.retention:30d}") Duration retention,
+                           @Value("${ine5417.store.max-entries:100000}") int maxEntries,
+                           @Value("${ine5417.store.batch-size:256}") int batchSize,
+                           @Value("${ine5417.store.queue-capacity:10000}") int queueCapacity,
+                           @Value("${ine5417.store.flush-interval:1s}") Duration flushInterval,
+                           @Value("${ine5417.store.compaction-interval:1h}") Duration compactionInterval,
+                           @Value("${ine5417.store.readers:4}") int readers) {
+        this.enabled = enabled;
+        this.retention = retention;
+        this.maxEntries = maxEntries;
+        this.batchSize = Math.max(1, batchSize);
+        this.pending = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            String url = "jdbc:sqlite:" + path;
+            writeConnection = DriverManager.getConnection(url);
+            try (Statement statement = writeConnection.createStatement()) {
+                if (schemaVersion(statement) < SCHEMA_VERSION) {
+                    for (String sql : DROP_OUTDATED) {
+                        statement.execute(sql);
+                    }
+                }
+                for (String sql : SCHEMA) {
+                    statement.execute(sql);
+                }
+            }
+            SQLiteConfig readOnly = new SQLiteConfig();
+            readOnly.setReadOnly(true);
+            this.readers = Math.max(1, readers);
+            readConnections = new ArrayBlockingQueue<>(this.readers);
+            for (int i = 0; i < this.readers; i++) {
+                readConnections.add(readOnly.createConnection(url));
+            }
+        } catch (IOException | SQLException e) {
+            throw new IllegalStateException("Cannot open the bruteforce store at " + path, e);
+        }
+
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bruteforce-store-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::flush,
+                flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        writer.scheduleWithFixedDelay(this::compact,
+                0, compactionInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static int schemaVersion(Statement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery("PRAGMA user_version")) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Looks up the stored result of an attack.
+     *
+     * @param key The attack.
+     * @return The candidates of the attack, if it was solved before.
+     */
+    public Optional<List<BruteForce>> find(AttackKey key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Connection connection;
+        try {
+            connection = readConnections.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_RESULT)) {
+            statement.setString(1, key.hash());
+            statement.setString(2, key.cipher());
+            statement.setInt(3, key.maxKeyLength());
+            statement.setInt(4, key.keyLengthCandidates());
+            statement.setString(5, key.languages());
+            statement.setInt(6, key.topK());
+            statement.setInt(7, key.previewLength());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return Optional.of(GSON.fromJson(resultSet.getString(1), RESULT_TYPE));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.warn("Cannot read the bruteforce store", e);
+        } finally {
+            readConnections.add(connection);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Queues the result of an attack to be written by the background writer. Results already
+     * stored are ignored, and results arriving while the queue is full are dropped.
+     *
+     * @param key    The attack.
+     * @param result The candidates of the attack.
+     */
+    public void save(AttackKey key, List<BruteForce> result) {
+        if (!enabled) {
+            return;
+        }
+        if (!pending.offer(new Entry(key, result, System.currentTimeMillis()))) {
+            LOGGER.debug("Bruteforce store queue is full, dropping result {}", key);
+            return;
+        }
+        if (pending.size() >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            writer.execute(this::flush);
+        }
+    }
+
+    /**
+     * Writes the queued results, in transactions of at most {@code batchSize} results.
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (pending.drainTo(batch, batchSize) > 0) {
+            try {
+                write(batch);
+            } catch (SQLException e) {
+                LOGGER.warn("Cannot write {} results to the bruteforce store", batch.size(), e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<Entry> batch) throws SQLException {
+        writeConnection.setAutoCommit(false);
+        try (PreparedStatement results = writeConnection.prepareStatement(INSERT_RESULT);
+             PreparedStatement keys = writeConnection.prepareStatement(INSERT_KEY)) {
+            for (Entry entry : batch) {
+                AttackKey key = entry.key();
+                results.setString(1, key.hash());
+                results.setString(2, key.cipher());
+                results.setInt(3, key.maxKeyLength());
+                results.setInt(4, key.keyLengthCandidates());
+                results.setString(5, key.languages());
+                results.setInt(6, key.topK());
+                results.setInt(7, key.previewLength());
+                results.setString(8, GSON.toJson(entry.result(), RESULT_TYPE));
+                results.setLong(9, entry.createdAt());
+                results.addBatch();
+
+                for (BruteForce best : bestPerLanguage(entry.result())) {
+                    keys.setString(1, key.hash());
+                    keys.setString(2, key.cipher());
+                    keys.setString(3, best.language());
+                    keys.setString(4, best.key());
+                    if (best.score() != null) {
+                        keys.setFloat(5, best.score());
+                    } else {
+                        keys.setNull(5, Types.REAL);
+                    }
+                    keys.setLong(6, entry.createdAt());
+                    keys.addBatch();
+                }
+            }
+            results.executeBatch();
+            keys.executeBatch();
+            writeConnection.commit();
+        } catch (SQLException e) {
+            writeConnection.rollback();
+            throw e;
+        } finally {
+            writeConnection.setAutoCommit(true);
+        }
+    }
+
+    private static List<BruteForce> bestPerLanguage(List<BruteForce> result) {
+        Map<String, BruteForce> best = new LinkedHashMap<>();
+        Comparator<BruteForce> byScore = Comparator.comparing(BruteForce::score,
+                Comparator.nullsFirst(Comparator.naturalOrder()));
+        for (BruteForce candidate : result) {
+            if (candidate.language() == null || candidate.key() == null) continue;
+            best.merge(candidate.language(), candidate, (a, b) -> byScore.compare(b, a) > 0 ? b : a);
+        }
+        return new ArrayList<>(best.values());
+    }
+
+    /**
+     * Deletes the results past their retention or beyond the maximum number of entries, then
+     * releases the free pages so the file shrinks.
+     */
+    private void compact() {
+        long cutoff = System.currentTimeMillis() - retention.toMillis();
+        try (Statement statement = writeConnection.createStatement()) {
+            int deleted = statement.executeUpdate("DELETE FROM bruteforce_results WHERE created_at < " + cutoff);
+            if (maxEntries > 0) {
+                deleted += statement.executeUpdate("""
+                        DELETE FROM bruteforce_results WHERE rowid IN (
+                            SELECT rowid FROM bruteforce_results ORDER BY created_at DESC LIMIT -1 OFFSET %d
+                        )""".formatted(maxEntries));
+            }
+            statement.executeUpdate("DELETE FROM solved_keys WHERE created_at < " + cutoff);
+            statement.executeUpdate("""
+                    DELETE FROM solved_keys WHERE NOT EXISTS (
+                        SELECT 1 FROM bruteforce_results r
+                        WHERE r.hash = solved_keys.hash AND r.cipher = solved_keys.cipher
+                    )""");
+            if (deleted > 0) {
+                statement.execute("PRAGMA incremental_vacuum");
+                statement.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+                LOGGER.info("Removed {} expired results from the bruteforce store", deleted);
+            }
+        } catch (SQLException e) {
+            LOGGER.warn("Cannot compact the bruteforce store", e);
+        }
+    }
+
+    @PreDestroy
+    void close() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        writer.execute(this::flush);
+        writer.shutdown();
+        if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+            LOGGER.warn("Bruteforce store writer did not finish, {} results were not written", pending.size());
+        }
+        closeQuietly(writeConnection);
+        // Waits for the lookups still running to give their connections back
+        for (int i = 0; i < readers; i++) {
+            Connection connection = readConnections.poll(10, TimeUnit.SECONDS);
+            if (connection == null) {
+                break;
+            }
+            closeQuietly(connection);
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOGGER.warn("Cannot close the bruteforce store", e);
+        }
+    }
+
+    private record Entry(AttackKey key, List<BruteForce> result, long createdAt) {
+    }
+}
@@ -0,0 +1,139 @@
+package ine5417.controllers;
+
+import ine5417.algorithms.BruteForceListener;
+import ine5417.records.BruteForce;
+import ine5417.records.BruteForceCandidate;
+import ine5417.records.BruteForceJob;
+import ine5417.records.BruteForceParameters;
+import ine5417.records.StreamParameters;
+import org.apache.coyote.BadRequestException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Streams the candidates of a brute-force attack as server-sent events while it runs, so that
+ * interactive clients see a first answer long before the attack is over.
+ * <p>
+ * The attack runs as a {@link BruteForceJobs job}, with its queue, deadline and metrics. Events:
+ * <ul>
+ *     <li>{@code job}: the queued {@link BruteForceJob}; its id can be used to cancel it.</li>
+ *     <li>{@code candidate}: a {@link BruteForceCandidate} improving the best score of its language.</li>
+ *     <li>{@code done}: the final {@link BruteForceJob}, after which the stream is closed.</li>
+ * </ul>
+ * With {@code stopOnHit}, the first candidate reaching {@code minScore} settles the job: the
+ * remaining work of the attack is cancelled and the candidates found so far are its result. A
+ * client disconnecting cancels the job.
+ */
+@Service
+public class BruteForceStreams {
+    public static final int DEFAULT_PREVIEW_LENGTH = 80;
+
+    private final BruteForceJobs bruteForceJobs;
+
+    public BruteForceStreams(BruteForceJobs bruteForceJobs) {
+        this.bruteForceJobs = bruteForceJobs;
+    }
+
+    /**
+     * Starts a streamed brute-force attack.
+     *
+     * @param ciphertext The raw ciphertext to attack.
+     * @param cipher     The identifier of the cipher suspected to have been used.
+     * @param parameters The optional tuning of the attack.
+     * @param stream     The optional filtering and early termination of the stream.
+     * @return The event stream.
+     * @throws BadRequestException If the cipher is not found or a parameter is invalid.
+     */
+    public SseEmitter stream(byte[] ciphertext, String cipher, BruteForceParameters parameters,
+                             StreamParameters stream) throws BadRequestException {
+        Float minScore = stream != null ? stream.minScore() : null;
+        boolean stopOnHit = stream != null && Boolean.TRUE.equals(stream.stopOnHit());
+        int previewLength = stream != null && stream.previewLength() != null
+                ? stream.previewLength() : DEFAULT_PREVIEW_LENGTH;
+        if (previewLength < 0) {
+            throw new BadRequestException("Invalid previewLength");
+        }
+
+        // The job deadline bounds the stream
+        SseEmitter emitter = new SseEmitter(0L);
+        AtomicReference<String> jobId = new AtomicReference<>();
+        AtomicBoolean hit = new AtomicBoolean();
+        Map<String, Float> bestScores = new HashMap<>();
+
+        BruteForceListener listener = candidate -> {
+            if (minScore != null && candidate.score() < minScore) {
+                return;
+            }
+            synchronized (bestScores) {
+                Float best = bestScores.get(candidate.language());
+                if (best != null && candidate.score() <= best) {
+                    return;
+                }
+                bestScores.put(candidate.language(), candidate.score());
+                send(emitter, "candidate", toCandidate(candidate, previewLength));
+            }
+            if (stopOnHit && hit.compareAndSet(false, true)) {
+                settle(jobId.get());
+            }
+        };
+
+        // Events are sent while holding the emitter, so the job event always comes first
+        synchronized (emitter) {
+            BruteForceJob job = bruteForceJobs.submit(ciphertext, cipher, parameters, null, listener, finished -> {
+                synchronized (emitter) {
+                    send(emitter, "done", finished);
+                    emitter.complete();
+                }
+            });
+            jobId.set(job.id());
+            send(emitter, "job", job);
+            emitter.onError(error -> cancel(job.id()));
+        }
+        return emitter;
+    }
+
+    private static BruteForceCandidate toCandidate(BruteForce candidate, int previewLength) {
+        String result = candidate.result();
+        String preview = result.length() > previewLength ? result.substring(0, previewLength) : result;
+        return new BruteForceCandidate(candidate.language(), candidate.key(), candidate.score(), preview);
+    }
+
+    private void settle(String id) {
+        if (id == null) return;
+        try {
+            bruteForceJobs.settle(id);
+        } catch (RuntimeException e) {
+            // The job already finished and was forgotten
+        }
+    }
+
+    private void cancel(String id) {
+        try {
+            BruteForceJob job = bruteForceJobs.get(id);
+            if (!job.status().isFinished()) {
+                bruteForceJobs.cancel(id);
+            }
+        } catch (RuntimeException e) {
+            // The job already finished and was forgotten
+        }
+    }
+
+    /**
+     * Sends an event, ignoring clients that went away: the job is cancelled by the error callback.
+     */
+    private static void send(SseEmitter emitter, String name, Object data) {
+        synchronized (emitter) {
+            try {
+                emitter.send(SseEmitter.event().name(name).data(data));
+            } catch (IOException | IllegalStateException e) {
+                // The client disconnected or the stream is complete
+            }
+        }
+    }
+}
@@ -2,22 +2,75 @@ package ine5417.controllers;
 
 import ine5417.algorithms.Algorithm;
 import ine5417.algorithms.AlgorithmFactory;
+import ine5417.algorithms.AlgorithmMetrics;
+import ine5417.algorithms.BruteForceOptions;
+import ine5417.algorithms.CancellationToken;
+import ine5417.commom.Frequency;
 import ine5417.records.BruteForce;
+import ine5417.records.BruteForceParameters;
 import ine5417.records.BruteForceResult;
 import ine5417.records.Ciphered;
 import ine5417.records.Deciphered;
+import org.apache.catalina.connector.CoyoteInputStream;
+import org.apache.catalina.connector.CoyoteOutputStream;
 import org.apache.coyote.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class CipherController {
+    private final BruteForceCache bruteForceCache;
+    private final BruteForceStore bruteForceStore;
+    private final BruteForceBulkhead bruteForceBulkhead;
+    private final DirectBufferPool bufferPool;
+    private final int maxKeyLength;
+    private final int maxKeyLengthCandidates;
+    private final int maxTopK;
+    private final int maxPreviewLength;
+
+    /**
+     * @param maxKeyLength           The longest key length a brute-force request may ask to test.
+     * @param maxKeyLengthCandidates The most key lengths a brute-force request may ask to fully attack.
+     * @param maxTopK                The most candidates per language a brute-force request may ask for.
+     * @param maxPreviewLength       The longest preview a brute-force request may ask for.
+     */
+    public CipherController(BruteForceCache bruteForceCache, BruteForceStore bruteForceStore,
+                            BruteForceBulkhead bruteForceBulkhead, DirectBufferPool bufferPool,
+                            @Value("${ine5417.bruteforce.max-key-length:1024}") int maxKeyLength,
+                            @Value("${ine5417.bruteforce.max-key-length-candidates:64}") int maxKeyLengthCandidates,
+                            @Value("${ine5417.bruteforce.max-top-k:256}") int maxTopK,
+                            @Value("${ine5417.bruteforce.max-preview-length:1048576}") int maxPreviewLength) {
+        if (maxKeyLength < 1 || maxKeyLengthCandidates < 1 || maxTopK < 1 || maxPreviewLength < 1) {
+            throw new IllegalArgumentException("The brute-force request limits must be positive");
+        }
+        this.bruteForceCache = bruteForceCache;
+        this.bruteForceStore = bruteForceStore;
+        this.bruteForceBulkhead = bruteForceBulkhead;
+        this.bufferPool = bufferPool;
+        this.maxKeyLength = maxKeyLength;
+        this.maxKeyLengthCandidates = maxKeyLengthCandidates;
+        this.maxTopK = maxTopK;
+        this.maxPreviewLength = maxPreviewLength;
+    }
 
     /**
      * Encrypts a plaintext message using a specified cipher and key.
@@ -29,15 +82,42 @@ public class CipherController {
      * @throws BadRequestException If the specified cipher is not found or invalid.
      */
     public Ciphered encrypt(String plaintext, String cipher, String key) throws BadRequestException {
-        Algorithm algorithm = getAlgorithm(cipher);
-        byte[] message = algorithm.cipher(
-                plaintext.getBytes(StandardCharsets.UTF_8),
-                key.getBytes(StandardCharsets.UTF_8)
-        );
-        String encodedMessage = Base64.getEncoder().encodeToString(message);
+        byte[] message = plaintext.getBytes(StandardCharsets.UTF_8);
+        transformInPlace(message, cipher, key, true);
+        return new Ciphered(Base64.getEncoder().encodeToString(message), cipher, key);
+    }
+
+    /**
+     * Encrypts a raw message using a specified cipher and key.
+     *
+     * @param plaintext The raw bytes to be encrypted.
+     * @param cipher    The identifier of the cipher to be used.
+     * @param key       The key for the encryption.
+     * @return A {@link Ciphered} object containing the Base64 encoded ciphertext and operation parameters.
+     * @throws BadRequestException If the specified cipher is not found or invalid.
+     */
+    public Ciphered encrypt(byte[] plaintext, String cipher, String key) throws BadRequestException {
+        String encodedMessage = Base64.getEncoder().encodeToString(encryptBytes(plaintext, cipher, key));
         return new Ciphered(encodedMessage, cipher, key);
     }
 
+    /**
+     * Encrypts a raw message using a specified cipher and key.
+     *
+     * @param plaintext The raw bytes to be encrypted.
+     * @param cipher    The identifier of the cipher to be used.
+     * @param key       The key for the encryption.
+     * @return The raw ciphertext.
+     * @throws BadRequestException If the specified cipher is not found or invalid.
+     */
+    public byte[] encryptBytes(byte[] plaintext, String cipher, String key) throws BadRequestException {
+        Algorithm algorithm = getAlgorithm(cipher);
+        long start = System.nanoTime();
+        byte[] ciphertext = algorithm.cipher(plaintext, key.getBytes(StandardCharsets.UTF_8));
+        metrics(cipher).recordOperation(AlgorithmMetrics.CIPHER, System.nanoTime() - start, plaintext.length);
+        return ciphertext;
+    }
+
     /**
      * Decrypts a ciphertext message using a specified cipher and key.
      *
@@ -48,30 +128,326 @@ public class CipherController {
      * @throws BadRequestException If the specified cipher is not found or invalid.
      */
     public Deciphered decrypt(String encrypted, String cipher, String key) throws BadRequestException {
-        Algorithm algorithm = getAlgorithm(cipher);
-        byte[] encryptedBytes = Base64.getDecoder().decode(encrypted.replace(' ', '+'));
-        byte[] message = algorithm.decipher(
-                encryptedBytes,
-                key.getBytes(StandardCharsets.UTF_8)
-        );
+        byte[] message = Base64.getDecoder().decode(encrypted.replace(' ', '+'));
+        transformInPlace(message, cipher, key, false);
+        return new Deciphered(new String(message, StandardCharsets.UTF_8), cipher, key);
+    }
+
+    /**
+     * Decrypts a raw ciphertext using a specified cipher and key.
+     *
+     * @param encrypted The raw bytes to be decrypted.
+     * @param cipher    The identifier of the cipher to be used.
+     * @param key       The key required for decryption.
+     * @return A {@link Deciphered} object containing the original plaintext and operation parameters.
+     * @throws BadRequestException If the specified cipher is not found or invalid.
+     */
+    public Deciphered decrypt(byte[] encrypted, String cipher, String key) throws BadRequestException {
+        byte[] message = decryptBytes(encrypted, cipher, key);
         return new Deciphered(new String(message, StandardCharsets.UTF_8), cipher, key);
     }
 
+    /**
+     * Decrypts a raw ciphertext using a specified cipher and key.
+     *
+     * @param encrypted The raw bytes to be decrypted.
+     * @param cipher    The identifier of the cipher to be used.
+     * @param key       The key required for decryption.
+     * @return The raw plaintext.
+     * @throws BadRequestException If the specified cipher is not found or invalid.
+     */
+    public byte[] decryptBytes(byte[] encrypted, String cipher, String key) throws BadRequestException {
+        Algorithm algorithm = getAlgorithm(cipher);
+        long start = System.nanoTime();
+        byte[] plaintext = algorithm.decipher(encrypted, key.getBytes(StandardCharsets.UTF_8));
+        metrics(cipher).recordOperation(AlgorithmMetrics.DECIPHER, System.nanoTime() - start, encrypted.length);
+        return plaintext;
+    }
+
     /**
      * Attempts to break an encrypted message without a key by trying all possibilities.
      *
-     * @param encrypted The ciphertext to attack.
+     * @param encrypted   The ciphertext to attack.
+     * @param cipher      The identifier of the cipher suspected to have been used.
+     * @param parameters  The optional tuning of the attack.
+     * @return A {@link BruteForceResult} containing a list of potential decryptions and their scores.
+     * @throws BadRequestException If the specified cipher is not found or the parameters are invalid.
+     */
+    public BruteForceResult bruteforce(String encrypted, String cipher, BruteForceParameters parameters) throws BadRequestException {
+        return bruteforce(Base64.getDecoder().decode(encrypted.replace(' ', '+')), cipher, parameters);
+    }
+
+    /**
+     * Attempts to break a raw ciphertext without a key by trying all possibilities. Results of
+     * recent attacks are served from the {@link BruteForceCache}, and ciphertexts solved before
+     * from the {@link BruteForceStore}. Runs inside the {@link BruteForceBulkhead}.
+     *
+     * @param encrypted   The raw ciphertext to attack.
+     * @param cipher      The identifier of the cipher suspected to have been used.
+     * @param parameters  The optional tuning of the attack.
+     * @return A {@link BruteForceResult} containing a list of potential decryptions and their scores.
+     * @throws BadRequestException If the specified cipher is not found or the parameters are invalid.
+     * @throws BruteForceRejectedException If too many brute-force requests are already running.
+     */
+    public BruteForceResult bruteforce(byte[] encrypted, String cipher, BruteForceParameters parameters) throws BadRequestException {
+        BruteForceOptions options = toOptions(parameters);
+        return bruteForceBulkhead.execute(() -> bruteforce(encrypted, cipher, options));
+    }
+
+    /**
+     * Attempts to break a raw ciphertext without a key by trying all possibilities.
+     *
+     * @param encrypted The raw ciphertext to attack.
      * @param cipher    The identifier of the cipher suspected to have been used.
+     * @param options   The tuning of the attack, including its cancellation and its listener, which
+     *                  also receives the candidates of a result found in the cache or the store.
      * @return A {@link BruteForceResult} containing a list of potential decryptions and their scores.
-     * @throws BadRequestException If the specified cipher is not found or invalid.
+     * @throws BadRequestException If the specified cipher is not found.
+     * @throws java.util.concurrent.CancellationException If the attack was cancelled or expired.
      */
-    public BruteForceResult bruteforce(String encrypted, String cipher) throws BadRequestException {
+    public BruteForceResult bruteforce(byte[] encrypted, String cipher, BruteForceOptions options) throws BadRequestException {
         Algorithm algorithm = getAlgorithm(cipher);
-        List<BruteForce> result = algorithm.bruteforce(Base64.getDecoder().decode(encrypted.replace(' ', '+')));
+        AttackKey key = AttackKey.of(cipher, encrypted, options);
+        AtomicBoolean attacked = new AtomicBoolean();
+        Supplier<List<BruteForce>> attack = () -> bruteForceStore.find(key).orElseGet(() -> {
+            attacked.set(true);
+            long start = System.nanoTime();
+            List<BruteForce> solved = algorithm.bruteforce(encrypted, options);
+            metrics(cipher).recordOperation(AlgorithmMetrics.BRUTEFORCE, System.nanoTime() - start, encrypted.length);
+            bruteForceStore.save(key, solved);
+            return solved;
+        });
+        List<BruteForce> result = options.cancellation() == CancellationToken.NONE
+                ? bruteForceCache.get(key, attack)
+                : bruteForceCache.getUnshared(key, attack);
 
+        if (options.isListened() && !attacked.get()) {
+            // Found in the cache or the store: the listener still gets every candidate, best first
+            result.stream()
+                    .sorted(Comparator.comparing(BruteForce::score, Comparator.nullsLast(Comparator.reverseOrder())))
+                    .forEach(options::emit);
+        }
         return new BruteForceResult(cipher, result);
     }
 
+    /**
+     * Converts the optional request parameters of a brute-force attack to algorithm options.
+     *
+     * @throws BadRequestException If a parameter is out of range.
+     */
+    public BruteForceOptions toOptions(BruteForceParameters parameters) throws BadRequestException {
+        BruteForceOptions options = BruteForceOptions.defaults();
+        if (parameters == null) {
+            return options;
+        }
+        if (parameters.parallelism() != null) {
+            options = options.withParallelism(requirePositive(parameters.parallelism(), "parallelism"));
+        }
+        if (parameters.maxKeyLength() != null) {
+            options = options.withMaxKeyLength(requireInRange(parameters.maxKeyLength(), maxKeyLength, "maxKeyLength"));
+        }
+        if (parameters.keyLengthCandidates() != null) {
+            options = options.withKeyLengthCandidates(requireInRange(
+                    parameters.keyLengthCandidates(), maxKeyLengthCandidates, "keyLengthCandidates"));
+        }
+        if (parameters.languages() != null && !parameters.languages().isEmpty()) {
+            options = options.withLanguages(requireLanguages(parameters.languages()));
+        }
+        if (parameters.topK() != null) {
+            options = options.withTopK(requireInRange(parameters.topK(), maxTopK, "topK"));
+        }
+        if (parameters.previewLength() != null) {
+            options = options.withPreviewLength(requireInRange(parameters.previewLength(), maxPreviewLength, "previewLength"));
+        }
+        return options;
+    }
+
+    private static List<String> requireLanguages(List<String> languages) throws BadRequestException {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String language : languages) {
+            String code = language.trim().toLowerCase();
+            if (!Frequency.isAvailable(code)) {
+                throw new BadRequestException("Unknown language: " + language);
+            }
+            distinct.add(code);
+        }
+        return List.copyOf(distinct);
+    }
+
+    private static int requirePositive(int value, String name) throws BadRequestException {
+        if (value < 1) {
+            throw new BadRequestException("Invalid " + name);
+        }
+        return value;
+    }
+
+    private static int requireInRange(int value, int max, String name) throws BadRequestException {
+        if (value < 1 || value > max) {
+            throw new BadRequestException("Invalid " + name + ": must be between 1 and " + max);
+        }
+        return value;
+    }
+
+    /**
+     * Encrypts or decrypts, in place, an array this controller owns.
+     */
+    private void transformInPlace(byte[] message, String cipher, String key, boolean encrypt) throws BadRequestException {
+        Algorithm algorithm = getAlgorithm(cipher);
+        ByteBuffer buffer = ByteBuffer.wrap(message);
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long start = System.nanoTime();
+        if (encrypt) {
+            algorithm.cipher(buffer, keyBytes);
+        } else {
+            algorithm.decipher(buffer, keyBytes);
+        }
+        metrics(cipher).recordOperation(encrypt ? AlgorithmMetrics.CIPHER : AlgorithmMetrics.DECIPHER,
+                System.nanoTime() - start, message.length);
+    }
+
+    /**
+     * Encrypts a request body into a response body. A body of known length that fits a pooled
+     * direct buffer is read into it, encrypted in place and written from it, without allocating
+     * an array of its size; any other body is encrypted as a stream, in constant memory.
+     *
+     * @param plaintext  The body to be encrypted.
+     * @param length     The length of the body, or -1 if unknown.
+     * @param ciphertext The stream receiving the encrypted bytes.
+     * @param cipher     The identifier of the cipher to be used.
+     * @param key        The key for the encryption.
+     * @return The number of bytes encrypted.
+     * @throws BadRequestException If the specified cipher is not found or invalid.
+     * @throws IOException         If reading or writing the bodies fails.
+     */
+    public long encryptBody(InputStream plaintext, long length, OutputStream ciphertext, String cipher, String key) throws IOException {
+        return transformBody(plaintext, length, ciphertext, cipher, key, true);
+    }
+
+    /**
+     * Decrypts a request body into a response body, through a pooled direct buffer when it fits
+     * one (see {@link #encryptBody(InputStream, long, OutputStream, String, String)}).
+     *
+     * @param encrypted The body to be decrypted.
+     * @param length    The length of the body, or -1 if unknown.
+     * @param plaintext The stream receiving the decrypted bytes.
+     * @param cipher    The identifier of the cipher to be used.
+     * @param key       The key required for decryption.
+     * @return The number of bytes decrypted.
+     * @throws BadRequestException If the specified cipher is not found or invalid.
+     * @throws IOException         If reading or writing the bodies fails.
+     */
+    public long decryptBody(InputStream encrypted, long length, OutputStream plaintext, String cipher, String key) throws IOException {
+        return transformBody(encrypted, length, plaintext, cipher, key, false);
+    }
+
+    private long transformBody(InputStream in, long length, OutputStream out, String cipher, String key,
+                               boolean encrypt) throws IOException {
+        Algorithm algorithm = getAlgorithm(cipher);
+        ByteBuffer buffer = bufferPool.acquire(length);
+        if (buffer == null) {
+            return encrypt ? encryptStream(in, out, cipher, key) : decryptStream(in, out, cipher, key);
+        }
+        try {
+            readFully(in, buffer);
+            buffer.flip();
+            int read = buffer.remaining();
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            long start = System.nanoTime();
+            if (encrypt) {
+                algorithm.cipher(buffer, keyBytes);
+            } else {
+                algorithm.decipher(buffer, keyBytes);
+            }
+            metrics(cipher).recordOperation(encrypt ? AlgorithmMetrics.CIPHER : AlgorithmMetrics.DECIPHER,
+                    System.nanoTime() - start, read);
+            writeFully(out, buffer);
+            return read;
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Reads until the buffer is full or the stream ends, leaving the position after the last byte
+     * read. Tomcat's own streams read straight into the buffer; others go through a channel, which
+     * copies through a small array.
+     */
+    private static void readFully(InputStream in, ByteBuffer buffer) throws IOException {
+        if (in instanceof CoyoteInputStream coyote) {
+            int length = buffer.limit();
+            int filled = buffer.position();
+            int read = 0;
+            while (filled < length && read >= 0) {
+                // Servlet 6.1 semantics: the position is kept and the limit moved after the bytes read
+                read = coyote.read(buffer.limit(length).position(filled));
+                filled += Math.max(read, 0);
+            }
+            buffer.limit(length).position(filled);
+            return;
+        }
+        ReadableByteChannel channel = Channels.newChannel(in);
+        int read = 0;
+        while (buffer.hasRemaining() && read >= 0) {
+            read = channel.read(buffer);
+        }
+    }
+
+    private static void writeFully(OutputStream out, ByteBuffer buffer) throws IOException {
+        if (out instanceof CoyoteOutputStream coyote) {
+            coyote.write(buffer);
+            return;
+        }
+        WritableByteChannel channel = Channels.newChannel(out);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Encrypts a stream of any length in fixed-size chunks, in constant memory.
+     *
+     * @param plaintext  The stream to be encrypted.
+     * @param ciphertext The stream receiving the encrypted bytes.
+     * @param cipher     The identifier of the cipher to be used.
+     * @param key        The key for the encryption.
+     * @return The number of bytes encrypted.
+     * @throws BadRequestException If the specified cipher is not found or invalid.
+     * @throws IOException         If reading or writing the streams fails.
+     */
+    public long encryptStream(InputStream plaintext, OutputStream ciphertext, String cipher, String key) throws IOException {
+        Algorithm algorithm = getAlgorithm(cipher);
+        long start = System.nanoTime();
+        long length = algorithm.cipher(
+                Channels.newChannel(plaintext),
+                Channels.newChannel(ciphertext),
+                key.getBytes(StandardCharsets.UTF_8)
+        );
+        metrics(cipher).recordOperation(AlgorithmMetrics.CIPHER, System.nanoTime() - start, length);
+        return length;
+    }
+
+    /**
+     * Decrypts a stream of any length in fixed-size chunks, in constant memory.
+     *
+     * @param encrypted The stream to be decrypted.
+     * @param plaintext The stream receiving the decrypted bytes.
+     * @param cipher    The identifier of the cipher to be used.
+     * @param key       The key required for decryption.
+     * @return The number of bytes decrypted.
+     * @throws BadRequestException If the specified cipher is not found or invalid.
+     * @throws IOException         If reading or writing the streams fails.
+     */
+    public long decryptStream(InputStream encrypted, OutputStream plaintext, String cipher, String key) throws IOException {
+        Algorithm algorithm = getAlgorithm(cipher);
+        long start = System.nanoTime();
+        long length = algorithm.decipher(
+                Channels.newChannel(encrypted),
+                Channels.newChannel(plaintext),
+                key.getBytes(StandardCharsets.UTF_8)
+        );
+        metrics(cipher).recordOperation(AlgorithmMetrics.DECIPHER, System.nanoTime() - start, length);
+        return length;
+    }
 
     /**
      * Retrieves an algorithm implementation from the factory based on its identifier.
@@ -89,7 +465,21 @@ public class CipherController {
         return algorithm.get();
     }
 
+    /**
+     * The instrumentation of a cipher, which {@link #getAlgorithm(String)} already validated.
+     */
+    static AlgorithmMetrics metrics(String cipher) {
+        return AlgorithmMetrics.of(cipher.toLowerCase());
+    }
+
     public List<String> listCiphers() {
         return AlgorithmFactory.getAlgorithmIdentifiers();
     }
+
+    /**
+     * @return The codes of the languages brute-force attacks can score, without loading them.
+     */
+    public List<String> listLanguages() {
+        return Frequency.getAvailableLanguages();
+    }
 }
\ No newline at end of file
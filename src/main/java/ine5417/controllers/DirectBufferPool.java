@@ -0,0 +1,95 @@
+package ine5417.controllers;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded, thread-safe pool of direct buffers of {@code ine5417.buffers.size} bytes, so that
+ * cipher and decipher requests up to that size are read, transformed in place and written back
+ * without allocating arrays of the size of the payload.
+ * <p>
+ * Buffers are allocated on demand, up to {@code ine5417.buffers.max-count}, and never freed: the
+ * pool holds at most {@code size * max-count} bytes of direct memory. A request too large for a
+ * buffer, or arriving while every buffer is in use, gets none and takes the streaming path
+ * instead; it never waits. The buffers allocated, the idle ones and the misses are published as
+ * {@code buffers.pool.allocated}, {@code buffers.pool.idle} and {@code buffers.pool.misses}.
+ */
+@Service
+public class DirectBufferPool {
+    private final int bufferSize;
+    private final int maxCount;
+    private final BlockingQueue<ByteBuffer> idle;
+    private final AtomicInteger allocated = new AtomicInteger();
+    private final Counter misses;
+
+    /**
+     * @param bufferSize The capacity of each buffer, i.e., the largest payload served from the pool.
+     * @param maxCount   The largest number of buffers; 0 disables the pool.
+     */
+    public DirectBufferPool(@Value("${ine5417.buffers.size:65536}") int bufferSize,
+                            @Value("${ine5417.buffers.max-count:64}") int maxCount,
+                            MeterRegistry registry) {
+        if (bufferSize < 1 || maxCount < 0) {
+            throw new IllegalArgumentException("The buffer size must be positive and the count not negative");
+        }
+        this.bufferSize = bufferSize;
+        this.maxCount = maxCount;
+        this.idle = new ArrayBlockingQueue<>(Math.max(maxCount, 1));
+
+        Gauge.builder("buffers.pool.allocated", allocated, AtomicInteger::get)
+                .description("Direct buffers allocated by the pool")
+                .register(registry);
+        Gauge.builder("buffers.pool.idle", idle, BlockingQueue::size)
+                .description("Direct buffers waiting in the pool")
+                .register(registry);
+        this.misses = Counter.builder("buffers.pool.misses")
+                .description("Requests that got no pooled buffer, being too large or finding every buffer in use")
+                .register(registry);
+    }
+
+    /**
+     * @return The capacity of each buffer.
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Takes a buffer for a payload, which must be given back with {@link #release(ByteBuffer)}.
+     *
+     * @param length The length of the payload.
+     * @return A buffer positioned at 0 with its limit at {@code length}, or null if the payload
+     * is larger than the buffers or every buffer is in use.
+     */
+    public ByteBuffer acquire(long length) {
+        if (length < 0 || length > bufferSize) {
+            misses.increment();
+            return null;
+        }
+        ByteBuffer buffer = idle.poll();
+        if (buffer == null) {
+            if (allocated.incrementAndGet() > maxCount) {
+                allocated.decrementAndGet();
+                misses.increment();
+                return null;
+            }
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+        return buffer.clear().limit((int) length);
+    }
+
+    /**
+     * Gives back a buffer taken with {@link #acquire(long)}.
+     */
+    public void release(ByteBuffer buffer) {
+        idle.offer(buffer.clear());
+    }
+}
@@ -0,0 +1,133 @@
+package ine5417.controllers;
+
+import ine5417.algorithms.AlgorithmFactory;
+import ine5417.algorithms.BruteForceExecutor;
+import ine5417.algorithms.BruteForceOptions;
+import ine5417.commom.CiphertextAnalysis;
+import ine5417.commom.MultiLanguageScorer;
+import ine5417.records.BruteForce;
+import ine5417.records.BruteForceParameters;
+import ine5417.records.CiphertextStatistics;
+import ine5417.records.IdentifiedCipher;
+import ine5417.records.Identification;
+import org.apache.coyote.BadRequestException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Identifies the cipher of a ciphertext when the caller does not know it.
+ * <p>
+ * Cheap {@link CiphertextStatistics statistics} of the ciphertext first rule out the algorithms
+ * that cannot have produced it (see {@link ine5417.algorithms.Algorithm#isPlausible}). The
+ * remaining attacks run in parallel through {@link CipherController}, within the parallelism of the
+ * request, so they share its cache and store, and their best candidates are ranked by the n-gram
+ * model of their language, which scores every plaintext on the same scale whatever the attack
+ * reported.
+ */
+@Service
+public class IdentificationController {
+    private final CipherController cipherController;
+    private final BruteForceBulkhead bruteForceBulkhead;
+
+    public IdentificationController(CipherController cipherController, BruteForceBulkhead bruteForceBulkhead) {
+        this.cipherController = cipherController;
+        this.bruteForceBulkhead = bruteForceBulkhead;
+    }
+
+    /**
+     * Identifies the cipher of a Base64-encoded ciphertext.
+     *
+     * @param encrypted  The ciphertext to identify.
+     * @param parameters The optional tuning of the attacks.
+     * @return The plausible ciphers, most likely first.
+     * @throws BadRequestException If the parameters are invalid.
+     */
+    public Identification identify(String encrypted, BruteForceParameters parameters) throws BadRequestException {
+        return identify(Base64.getDecoder().decode(encrypted.replace(' ', '+')), parameters);
+    }
+
+    /**
+     * Identifies the cipher of a raw ciphertext. Runs inside the {@link BruteForceBulkhead}, as a
+     * single brute-force request.
+     *
+     * @param encrypted  The raw ciphertext to identify.
+     * @param parameters The optional tuning of the attacks.
+     * @return The plausible ciphers, most likely first.
+     * @throws BadRequestException         If the parameters are invalid.
+     * @throws BruteForceRejectedException If too many brute-force requests are already running.
+     */
+    public Identification identify(byte[] encrypted, BruteForceParameters parameters) throws BadRequestException {
+        BruteForceOptions options = cipherController.toOptions(parameters);
+        return bruteForceBulkhead.execute(() -> identify(encrypted, options));
+    }
+
+    /**
+     * Identifies the cipher of a raw ciphertext.
+     *
+     * @param encrypted The raw ciphertext to identify.
+     * @param options   The tuning of the attacks.
+     * @return The plausible ciphers, most likely first.
+     */
+    public Identification identify(byte[] encrypted, BruteForceOptions options) {
+        CiphertextStatistics statistics = CiphertextAnalysis.analyze(encrypted);
+        List<String> plausible = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        for (String cipher : AlgorithmFactory.getAlgorithmIdentifiers()) {
+            boolean isPlausible = AlgorithmFactory.getAlgorithm(cipher).orElseThrow().isPlausible(statistics);
+            (isPlausible ? plausible : skipped).add(cipher);
+        }
+        if (plausible.isEmpty()) {
+            // The statistics are only heuristics: rather than answer nothing, try everything
+            plausible.addAll(skipped);
+            skipped.clear();
+        }
+
+        // The requested parallelism is split between the attacks running at once, so that their
+        // own parallel pieces do not add up to more than the request asked for
+        int concurrent = Math.min(options.parallelism(), plausible.size());
+        BruteForceOptions attackOptions = options.withParallelism(Math.max(1, options.parallelism() / concurrent));
+        List<Callable<List<BruteForce>>> attacks = new ArrayList<>();
+        for (String cipher : plausible) {
+            attacks.add(() -> cipherController.bruteforce(encrypted, cipher, attackOptions).result());
+        }
+        List<List<BruteForce>> results = BruteForceExecutor.invokeAll(attacks, concurrent);
+
+        MultiLanguageScorer scorer = MultiLanguageScorer.of(options.profiles());
+        List<IdentifiedCipher> ranking = new ArrayList<>();
+        for (int i = 0; i < plausible.size(); i++) {
+            ranking.add(new IdentifiedCipher(plausible.get(i), rank(results.get(i), scorer), results.get(i)));
+        }
+        ranking.sort(Comparator.comparing(IdentifiedCipher::score, Comparator.nullsLast(Comparator.reverseOrder())));
+        return new Identification(statistics, skipped, ranking);
+    }
+
+    /**
+     * @return The best score of the candidates in their own language, or null if there are none.
+     */
+    private static Float rank(List<BruteForce> candidates, MultiLanguageScorer scorer) {
+        Map<String, Integer> languages = new HashMap<>();
+        for (int i = 0; i < scorer.size(); i++) {
+            languages.put(scorer.language(i), i);
+        }
+        Map<String, float[]> scores = new HashMap<>();
+        Float best = null;
+        for (BruteForce candidate : candidates) {
+            Integer language = languages.get(candidate.language());
+            if (language == null || candidate.result() == null) continue;
+            float score = scores.computeIfAbsent(candidate.result(),
+                    text -> scorer.scoreText(text.getBytes(StandardCharsets.UTF_8)))[language];
+            if (best == null || score > best) {
+                best = score;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,11 @@
+package ine5417.records;
+
+/**
+ * A single message of a batch cipher or decipher request, one per NDJSON line.
+ *
+ * @param cipher  The identifier of the cipher to be used.
+ * @param key     The key of the operation.
+ * @param payload The plaintext to encrypt, or the Base64 encoded ciphertext to decrypt.
+ */
+public record BatchRequest(String cipher, String key, String payload) {
+}
@@ -0,0 +1,11 @@
+package ine5417.records;
+
+/**
+ * The outcome of a single message of a batch request, one per NDJSON line, in request order.
+ *
+ * @param index  The position of the message in the batch, from 0.
+ * @param result The Base64 encoded ciphertext, or the plaintext; null if the message failed.
+ * @param error  Why the message failed; null if it succeeded.
+ */
+public record BatchResult(long index, String result, String error) {
+}
@@ -0,0 +1,12 @@
+package ine5417.records;
+
+/**
+ * A candidate of a brute-force attack sent while the attack is still running.
+ *
+ * @param language The language profile used to score the candidate.
+ * @param key      The key of the candidate.
+ * @param score    The score of the candidate. Higher scores are better.
+ * @param preview  The beginning of the deciphered message.
+ */
+public record BruteForceCandidate(String language, String key, Float score, String preview) {
+}
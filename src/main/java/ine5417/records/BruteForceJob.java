@@ -0,0 +1,31 @@
+package ine5417.records;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Snapshot of an asynchronous brute-force attack.
+ *
+ * @param id          The identifier of the job.
+ * @param cipher      The identifier of the attacked cipher.
+ * @param status      The state of the job.
+ * @param submittedAt When the job was submitted.
+ * @param startedAt   When the attack started, or null if it is still queued.
+ * @param finishedAt  When the job finished, or null if it has not.
+ * @param deadline    When the job is cancelled if it has not finished.
+ * @param result      The final candidates once the job succeeded or settled, otherwise the candidates found so far.
+ * @param error       Why the job failed, was cancelled or expired.
+ */
+public record BruteForceJob(String id, String cipher, Status status, Instant submittedAt, Instant startedAt,
+                            Instant finishedAt, Instant deadline, List<BruteForce> result, String error) {
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED, EXPIRED,
+        /** Stopped early because the caller was satisfied with the candidates found so far */
+        SETTLED;
+
+        public boolean isFinished() {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ine5417.records;
+
+import java.util.List;
+
+/**
+ * Optional query parameters tuning a brute-force request. Absent values use the server defaults.
+ *
+ * @param parallelism         The maximum number of threads the attack may use at once.
+ * @param maxKeyLength        The longest key length tested by repeating-key attacks.
+ * @param keyLengthCandidates The number of most likely key lengths fully attacked.
+ * @param languages           The codes of the languages to score (e.g., "en,pt"); every available language if absent.
+ * @param topK                The number of candidates returned per language.
+ * @param previewLength       The number of characters of each returned plaintext; the whole plaintext if absent.
+ */
+public record BruteForceParameters(Integer parallelism, Integer maxKeyLength, Integer keyLengthCandidates,
+                                   List<String> languages, Integer topK, Integer previewLength) {
+}
@@ -0,0 +1,74 @@
+package ine5417.records;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Cheap statistics of a ciphertext, used to rule out the ciphers that cannot have produced it
+ * before attacking it.
+ *
+ * @param length                     The number of bytes of the ciphertext.
+ * @param entropy                    The Shannon entropy of the bytes, in bits per byte (0 to 8).
+ * @param indexOfCoincidence         The index of coincidence of the case-folded ASCII letters, or 0 if there are fewer than two.
+ * @param alphabetRatio              The fraction of the bytes that are ASCII letters.
+ * @param printableRatio             The fraction of the bytes that are printable ASCII, whitespace or valid UTF-8 text.
+ * @param spaceRatio                 The fraction of the bytes that are spaces.
+ * @param byteIndexOfCoincidence     The index of coincidence of the bytes.
+ * @param period                     The most likely length of a repeating key, 1 if the bytes show no period.
+ * @param periodicIndexOfCoincidence The average index of coincidence of the bytes of each column at that period.
+ */
+public record CiphertextStatistics(int length, double entropy, double indexOfCoincidence, double alphabetRatio,
+                                   double printableRatio, double spaceRatio, double byteIndexOfCoincidence,
+                                   int period, double periodicIndexOfCoincidence) {
+    /**
+     * Below this many letters the index of coincidence says nothing about the number of alphabets
+     */
+    public static final int MIN_LETTERS_FOR_INDEX = 40;
+    /**
+     * Between random letters (about 0.038) and natural languages (0.065 and above)
+     */
+    public static final double MONOALPHABETIC_INDEX = 0.05;
+    /**
+     * Below this many bytes the index of coincidence of the bytes says nothing about the number of keys
+     */
+    public static final int MIN_BYTES_FOR_INDEX = 40;
+    /**
+     * Between text XOR-ed with a repeating key of two or more bytes (0.04 and below) and text
+     * XOR-ed with a single byte (0.06 and above, spaces included)
+     */
+    public static final double SINGLE_KEY_BYTE_INDEX = 0.05;
+
+    /**
+     * @return Whether the ciphertext reads like text: printable, mostly letters and split into words
+     * by spaces. Ciphers that only touch letters keep a text looking like this; XOR-ing it with a
+     * non-zero key never leaves a space a space.
+     */
+    public boolean looksLikeText() {
+        return printableRatio >= 0.95 && spaceRatio >= 0.05 && alphabetRatio >= 0.5;
+    }
+
+    /**
+     * @return Whether the ciphertext is printable text containing letters, which is what a cipher
+     * that only shifts letters produces from text.
+     */
+    @JsonIgnore
+    public boolean isPrintableWithLetters() {
+        return printableRatio >= 0.95 && alphabetRatio > 0;
+    }
+
+    /**
+     * @return Whether the letters may come from a single shifted alphabet, i.e., their index of
+     * coincidence is that of a natural language, or there are too few letters to tell.
+     */
+    @JsonIgnore
+    public boolean isMonoalphabetic() {
+        return alphabetRatio * length < MIN_LETTERS_FOR_INDEX || indexOfCoincidence >= MONOALPHABETIC_INDEX;
+    }
+
+    /**
+     * @return Whether every byte may have been enciphered with the same key byte, i.e., the bytes
+     * keep the index of coincidence of text, or there are too few bytes to tell.
+     */
+    public boolean hasSingleKeyByteIndex() {
+        return length < MIN_BYTES_FOR_INDEX || byteIndexOfCoincidence >= SINGLE_KEY_BYTE_INDEX;
+    }
+}
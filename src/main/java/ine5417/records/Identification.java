@@ -0,0 +1,13 @@
+package ine5417.records;
+
+import java.util.List;
+
+/**
+ * The ciphers that may have produced a ciphertext, most likely first.
+ *
+ * @param statistics The statistics of the ciphertext that ruled ciphers out.
+ * @param skipped    The identifiers of the ciphers ruled out without being attacked.
+ * @param ranking    The attacked ciphers, the one whose best candidate reads most like text first.
+ */
+public record Identification(CiphertextStatistics statistics, List<String> skipped, List<IdentifiedCipher> ranking) {
+}
@@ -0,0 +1,14 @@
+package ine5417.records;
+
+import java.util.List;
+
+/**
+ * A cipher that may have produced a ciphertext, with the candidates of its brute-force attack.
+ *
+ * @param cipher The identifier of the cipher.
+ * @param score  The score of its best candidate, comparable across ciphers: the average
+ *               log10-probability of a byte of the plaintext in its language. Higher is better.
+ * @param result The candidates of the attack, as returned by the brute-force endpoint.
+ */
+public record IdentifiedCipher(String cipher, Float score, List<BruteForce> result) {
+}
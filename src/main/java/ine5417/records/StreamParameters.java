@@ -0,0 +1,11 @@
+package ine5417.records;
+
+/**
+ * Optional query parameters of a streamed brute-force request.
+ *
+ * @param minScore      Candidates scoring below it are not sent.
+ * @param stopOnHit     Whether the attack stops at the first candidate scoring at least {@code minScore}.
+ * @param previewLength The number of characters of each candidate sent.
+ */
+public record StreamParameters(Float minScore, Boolean stopOnHit, Integer previewLength) {
+}
@@ -0,0 +1,53 @@
+package ine5417.ngrams;
+
+import ine5417.commom.NgramModel;
+import ine5417.commom.NgramModelBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generates the bundled n-gram models from the corpora in {@code src/ngrams}.
+ * <p>
+ * Build-time only: compiled by the {@code ngrams} profile and run with
+ * {@code mvn -Pngrams compile exec:java}, never packaged with the application.
+ */
+public final class NgramModelGenerator {
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private NgramModelGenerator() {}
+
+    /**
+     * Builds the model of every {@code <language>.txt} corpus of a directory into
+     * {@code <language>.ngram} files.
+     * <p>
+     * Usage: {@code NgramModelGenerator <corpora directory> <output directory> [order]}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: NgramModelGenerator <corpora directory> <output directory> [order]");
+            System.exit(1);
+        }
+        Path corpora = Path.of(args[0]);
+        Path output = Path.of(args[1]);
+        int order = args.length > 2 ? Integer.parseInt(args[2]) : NgramModelBuilder.DEFAULT_ORDER;
+        Files.createDirectories(output);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(corpora, "*.txt")) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                String language = fileName.substring(0, fileName.length() - ".txt".length());
+                NgramModel model = new NgramModelBuilder(language, order).add(Files.readAllBytes(file)).build();
+                Path target = output.resolve(language + ".ngram");
+                try (OutputStream out = Files.newOutputStream(target)) {
+                    model.write(out);
+                }
+                System.out.println("Wrote " + target + " (order " + order + ")");
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ine5417.algorithms.implementations;
+
+import ine5417.algorithms.BruteForceOptions;
+import ine5417.records.BruteForce;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks that the repeating-key XOR attack recovers random keys of every length from 2 to 40 from
+ * English text, i.e., that the key length detection ranks the right length and does not trade it
+ * for one of its divisors.
+ */
+class RepeatingXORTest {
+    /** Bytes of ciphertext per key byte, so that every column can be solved */
+    private static final int BYTES_PER_KEY_BYTE = 60;
+    private static final int MIN_LENGTH = 600;
+
+    private static byte[] english;
+
+    @BeforeAll
+    static void corpus() throws IOException {
+        english = Files.readAllBytes(Path.of("src/ngrams/en.txt"));
+    }
+
+    static IntStream keyLengths() {
+        return IntStream.rangeClosed(2, 40);
+    }
+
+    @ParameterizedTest
+    @MethodSource("keyLengths")
+    void recoversKey(int keyLength) {
+        Random random = new Random(keyLength);
+        byte[] key = randomKey(random, keyLength);
+        int length = Math.max(MIN_LENGTH, BYTES_PER_KEY_BYTE * keyLength);
+        int start = random.nextInt(english.length - length);
+        byte[] plaintext = Arrays.copyOfRange(english, start, start + length);
+
+        RepeatingXOR algorithm = new RepeatingXOR();
+        BruteForceOptions options = BruteForceOptions.defaults()
+                .withLanguages(List.of("en"))
+                .withMaxKeyLength(60);
+        List<BruteForce> result = algorithm.bruteforce(algorithm.cipher(plaintext, key), options);
+
+        assertFalse(result.isEmpty());
+        BruteForce best = result.get(0);
+        assertEquals(new String(key, StandardCharsets.UTF_8), best.key(), "key of length " + keyLength);
+        assertEquals(new String(plaintext, StandardCharsets.UTF_8), best.result());
+    }
+
+    /**
+     * A key of lowercase letters that is not a shorter key repeated.
+     */
+    private static byte[] randomKey(Random random, int length) {
+        byte[] key = new byte[length];
+        do {
+            for (int i = 0; i < length; i++) {
+                key[i] = (byte) ('a' + random.nextInt(26));
+            }
+        } while (isPeriodic(key));
+        return key;
+    }
+
+    private static boolean isPeriodic(byte[] key) {
+        for (int period = 1; period < key.length; period++) {
+            if (key.length % period != 0) continue;
+            boolean repeats = true;
+            for (int i = period; i < key.length && repeats; i++) {
+                repeats = key[i] == key[i - period];
+            }
+            if (repeats) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
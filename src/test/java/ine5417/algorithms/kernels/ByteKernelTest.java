@@ -0,0 +1,207 @@
+package ine5417.algorithms.kernels;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that the {@link VectorByteKernel} produces the same bytes and key positions as the
+ * {@link ScalarByteKernel}, on random inputs over arrays, heap buffers and direct buffers, across
+ * key lengths, offsets, and tails shorter than a vector.
+ * <p>
+ * Surefire runs with {@code --add-modules jdk.incubator.vector}, so the vector kernel must be
+ * available: a kernel that fails to link on the JDK running the build fails here.
+ */
+class ByteKernelTest {
+    /** Lengths around the vector widths, plus a few blocks of the scratch arrays of direct buffers */
+    private static final int[] LENGTHS = {0, 1, 7, 15, 16, 17, 31, 32, 33, 63, 64, 65, 100, 129, 1000, 20_000};
+    private static final int[] OFFSETS = {0, 1, 3, 13};
+    private static final int[] KEY_LENGTHS = {1, 2, 3, 5, 16, 17, 31, 64, 65, 100};
+
+    private static ByteKernel scalar;
+    private static ByteKernel vector;
+
+    @BeforeAll
+    static void kernels() {
+        scalar = ByteKernels.scalar();
+        vector = ByteKernels.vector().orElse(null);
+    }
+
+    @Test
+    void vectorKernelIsAvailableWithTheIncubatorModule() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+                "jdk.incubator.vector is not in the boot layer");
+        assertTrue(ByteKernels.vector().isPresent(), "The vector kernel failed to load; see the WARN log");
+    }
+
+    @Test
+    void xorMatchesScalar() {
+        assumeVector();
+        Random random = new Random(1);
+        for (int length : LENGTHS) {
+            for (int offset : OFFSETS) {
+                byte key = (byte) random.nextInt();
+                byte[] input = randomBytes(random, offset + length);
+                byte[] expected = new byte[offset + length];
+                byte[] actual = new byte[offset + length];
+                scalar.xor(input, offset, expected, offset, length, key);
+                vector.xor(input, offset, actual, offset, length, key);
+                assertArrayEquals(expected, actual, context("xor", length, offset, 1));
+
+                vector.xor(input, offset, input, offset, length, key);
+                assertArrayEquals(Arrays.copyOfRange(expected, offset, offset + length),
+                        Arrays.copyOfRange(input, offset, offset + length), context("in-place xor", length, offset, 1));
+            }
+        }
+    }
+
+    @Test
+    void repeatingXorMatchesScalar() {
+        assumeVector();
+        Random random = new Random(2);
+        for (int keyLength : KEY_LENGTHS) {
+            byte[] key = randomBytes(random, keyLength);
+            ByteKernel.ExpandedKey scalarKey = scalar.expand(key);
+            ByteKernel.ExpandedKey vectorKey = vector.expand(key);
+            for (int length : LENGTHS) {
+                for (int offset : OFFSETS) {
+                    int keyIndex = random.nextInt(keyLength);
+                    byte[] input = randomBytes(random, offset + length);
+                    byte[] expected = new byte[offset + length];
+                    byte[] actual = new byte[offset + length];
+                    int expectedIndex = scalar.xor(input, offset, expected, offset, length, scalarKey, keyIndex);
+                    int actualIndex = vector.xor(input, offset, actual, offset, length, vectorKey, keyIndex);
+                    String context = context("repeating xor", length, offset, keyLength);
+                    assertArrayEquals(expected, actual, context);
+                    assertEquals(expectedIndex, actualIndex, context);
+                }
+            }
+        }
+    }
+
+    @Test
+    void shiftLettersMatchesScalar() {
+        assumeVector();
+        Random random = new Random(3);
+        for (int keyLength : KEY_LENGTHS) {
+            byte[] shifts = randomShifts(random, keyLength);
+            ByteKernel.ExpandedKey scalarShifts = scalar.expand(shifts);
+            ByteKernel.ExpandedKey vectorShifts = vector.expand(shifts);
+            for (int length : LENGTHS) {
+                for (int offset : OFFSETS) {
+                    int keyIndex = random.nextInt(keyLength);
+                    byte[] input = randomText(random, offset + length);
+                    byte[] expected = new byte[offset + length];
+                    byte[] actual = new byte[offset + length];
+                    int expectedIndex = scalar.shiftLetters(input, offset, expected, offset, length, scalarShifts, keyIndex);
+                    int actualIndex = vector.shiftLetters(input, offset, actual, offset, length, vectorShifts, keyIndex);
+                    String context = context("shift letters", length, offset, keyLength);
+                    assertArrayEquals(expected, actual, context);
+                    assertEquals(expectedIndex, actualIndex, context);
+                }
+            }
+        }
+    }
+
+    @Test
+    void bufferFormsMatchScalar() {
+        assumeVector();
+        Random random = new Random(4);
+        for (boolean direct : new boolean[]{false, true}) {
+            for (int keyLength : KEY_LENGTHS) {
+                byte[] key = randomShifts(random, keyLength);
+                ByteKernel.ExpandedKey scalarKey = scalar.expand(key);
+                ByteKernel.ExpandedKey vectorKey = vector.expand(key);
+                for (int length : LENGTHS) {
+                    for (int offset : OFFSETS) {
+                        int keyIndex = random.nextInt(keyLength);
+                        byte[] input = randomText(random, offset + length);
+                        String context = context(direct ? "direct buffer" : "heap buffer", length, offset, keyLength);
+
+                        ByteBuffer expected = buffer(input, direct);
+                        ByteBuffer actual = buffer(input, direct);
+                        scalar.xor(expected, offset, length, key[0]);
+                        vector.xor(actual, offset, length, key[0]);
+                        assertEquals(expected, actual, "xor on " + context);
+
+                        int expectedIndex = scalar.xor(expected, offset, length, scalarKey, keyIndex);
+                        int actualIndex = vector.xor(actual, offset, length, vectorKey, keyIndex);
+                        assertEquals(expected, actual, "repeating xor on " + context);
+                        assertEquals(expectedIndex, actualIndex, "repeating xor on " + context);
+
+                        expected = buffer(input, direct);
+                        actual = buffer(input, direct);
+                        expectedIndex = scalar.shiftLetters(expected, offset, length, scalarKey, keyIndex);
+                        actualIndex = vector.shiftLetters(actual, offset, length, vectorKey, keyIndex);
+                        assertEquals(expected, actual, "shift letters on " + context);
+                        assertEquals(expectedIndex, actualIndex, "shift letters on " + context);
+                        assertEquals(0, actual.position(), "position moved on " + context);
+                        assertEquals(input.length, actual.limit(), "limit moved on " + context);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void assumeVector() {
+        assumeTrue(vector != null, "The vector kernel is not available on this JVM");
+    }
+
+    /**
+     * A buffer holding a copy of the bytes; heap buffers are slices, so their array offset is not 0.
+     */
+    private static ByteBuffer buffer(byte[] bytes, boolean direct) {
+        if (direct) {
+            return ByteBuffer.allocateDirect(bytes.length).put(bytes).clear();
+        }
+        ByteBuffer backing = ByteBuffer.allocate(bytes.length + 5);
+        backing.position(5);
+        return backing.slice().put(bytes).clear();
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] randomShifts(Random random, int length) {
+        byte[] shifts = new byte[length];
+        for (int i = 0; i < length; i++) {
+            shifts[i] = (byte) random.nextInt(26);
+        }
+        return shifts;
+    }
+
+    /**
+     * Mostly letters of both cases, with punctuation and bytes next to the alphabet bounds.
+     */
+    private static byte[] randomText(Random random, int length) {
+        byte[] text = new byte[length];
+        for (int i = 0; i < length; i++) {
+            int kind = random.nextInt(10);
+            if (kind < 4) {
+                text[i] = (byte) ('a' + random.nextInt(26));
+            } else if (kind < 7) {
+                text[i] = (byte) ('A' + random.nextInt(26));
+            } else if (kind < 9) {
+                text[i] = (byte) "@[`{ ,.\n".charAt(random.nextInt(8));
+            } else {
+                text[i] = (byte) random.nextInt();
+            }
+        }
+        return text;
+    }
+
+    private static String context(String operation, int length, int offset, int keyLength) {
+        return operation + " of " + length + " bytes at " + offset + " with a key of " + keyLength;
+    }
+}